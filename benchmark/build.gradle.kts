@@ -0,0 +1,38 @@
+plugins {
+  `java-library`
+  alias(versionCatalog.plugins.jmh)
+}
+
+java {
+  sourceCompatibility = JavaVersion.VERSION_1_8
+  targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+// The shadow geometry and corner radius math have no Android dependencies,
+// so they are compiled straight from the library sources and run on a plain JVM.
+sourceSets {
+  main {
+    java {
+      setSrcDirs(listOf("../customcardview/src/main/java"))
+      include(
+        "easy/peasy/cardview/widget/CornerRadius.java",
+        "easy/peasy/cardview/widget/ShadowGeometry.java"
+      )
+    }
+  }
+}
+
+dependencies {
+  implementation(versionCatalog.annotation)
+}
+
+jmh {
+  jmhVersion.set(versionCatalog.versions.jmh.version.get())
+  warmupIterations.set(3)
+  iterations.set(5)
+  fork.set(1)
+  benchmarkMode.set(listOf("thrpt"))
+  timeUnit.set("s")
+  // reports gc.alloc.rate.norm, bytes allocated per operation
+  profilers.set(listOf("gc"))
+}
@@ -0,0 +1,120 @@
+package easy.peasy.cardview.widget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Benchmarks of the shadow geometry and corner radius math, run with {@code ./gradlew :benchmark:jmh}.
+ * <p>
+ * Parameters are drawn from what cards use in practice: radii and elevations of a few dp on
+ * common screen densities, mostly uniform corners with some per-corner radii.
+ */
+@State(Scope.Thread)
+public class ShadowGeometryBenchmark {
+
+  private static final int COUNT_PARAMS = 1024;
+
+  private static final float[] DENSITIES = {1.5f, 2f, 2.625f, 3f, 3.5f, 4f};
+
+  private static final int[] RADII_DP = {0, 2, 4, 8, 12, 16, 24, 32};
+
+  private static final int[] ELEVATIONS_DP = {0, 1, 2, 4, 6, 8, 12, 16, 24};
+
+  private final float[][] mRadii = new float[COUNT_PARAMS][];
+
+  private final CornerRadius[] mCornerRadii = new CornerRadius[COUNT_PARAMS];
+
+  private final float[] mElevations = new float[COUNT_PARAMS];
+
+  private final float[] mCardWidths = new float[COUNT_PARAMS];
+
+  private final int[] mInsetShadows = new int[COUNT_PARAMS];
+
+  private int mIndex;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    for (int i = 0; i < COUNT_PARAMS; i++) {
+      float density = DENSITIES[random.nextInt(DENSITIES.length)];
+      float[] radii = new float[4];
+      if (random.nextInt(4) == 0) {
+        for (int corner = 0; corner < radii.length; corner++) {
+          radii[corner] = RADII_DP[random.nextInt(RADII_DP.length)] * density;
+        }
+      } else {
+        float radius = RADII_DP[random.nextInt(RADII_DP.length)] * density;
+        for (int corner = 0; corner < radii.length; corner++) {
+          radii[corner] = radius;
+        }
+      }
+      mRadii[i] = radii;
+      mCornerRadii[i] = CornerRadius.build(0f, radii[0], radii[1], radii[2], radii[3]);
+      mElevations[i] = ELEVATIONS_DP[random.nextInt(ELEVATIONS_DP.length)] * density;
+      mCardWidths[i] = (120 + random.nextInt(240)) * density;
+      mInsetShadows[i] = (int) density;
+    }
+  }
+
+  private int next() {
+    mIndex = (mIndex + 1) & (COUNT_PARAMS - 1);
+    return mIndex;
+  }
+
+  @Benchmark
+  public CornerRadius cornerRadiusBuild() {
+    float[] radii = mRadii[next()];
+    return CornerRadius.build(0f, radii[0], radii[1], radii[2], radii[3]);
+  }
+
+  @Benchmark
+  public CornerRadius cornerRadiusWithOffset() {
+    return mCornerRadii[next()].withOffset(.5f);
+  }
+
+  @Benchmark
+  public float cornerRadiusGetMaxRadius() {
+    return mCornerRadii[next()].getMaxRadius();
+  }
+
+  @Benchmark
+  public int toEven() {
+    return ShadowGeometry.toEven(mElevations[next()]);
+  }
+
+  @Benchmark
+  public float calculateVerticalPadding() {
+    return ShadowGeometry.calculateVerticalPadding(ShadowGeometry.toEven(mElevations[next()]));
+  }
+
+  @Benchmark
+  public float calculateMinWidth() {
+    int i = next();
+    return ShadowGeometry.calculateMinWidth(mCornerRadii[i].getMaxRadius(), mInsetShadows[i], ShadowGeometry.toEven(mElevations[i]));
+  }
+
+  @Benchmark
+  public float calculateMinHeight() {
+    int i = next();
+    return ShadowGeometry.calculateMinHeight(mCornerRadii[i].getMaxRadius(), mInsetShadows[i], ShadowGeometry.toEven(mElevations[i]));
+  }
+
+  /**
+   * The per-draw layout of the shadow: shadow size, corner inset and bottom edge length.
+   */
+  @Benchmark
+  public float shadowLayout() {
+    int i = next();
+    float rawShadowSize = ShadowGeometry.toEven(mElevations[i]);
+    CornerRadius cornerRadius = mCornerRadii[i];
+    int shadowSize = ShadowGeometry.calculateShadowSize(rawShadowSize, mInsetShadows[i]);
+    float bottomRightInset = ShadowGeometry.calculateCornerInset(cornerRadius.getBottomRight(), mInsetShadows[i], rawShadowSize);
+    float bottomLeftInset = ShadowGeometry.calculateCornerInset(cornerRadius.getBottomLeft(), mInsetShadows[i], rawShadowSize);
+    float cardWidth = mCardWidths[i] - 2 * rawShadowSize;
+    return ShadowGeometry.calculateEdgeLength(cardWidth, bottomRightInset, bottomLeftInset, ShadowGeometry.SHADOW_OFFSET) + shadowSize;
+  }
+}
@@ -3,6 +3,7 @@ plugins {
   alias(versionCatalog.plugins.android.application) apply false
   alias(versionCatalog.plugins.android.library) apply false
   alias(versionCatalog.plugins.kotlin.android) apply false
+  alias(versionCatalog.plugins.jmh) apply false
 }
 
 tasks.create<Delete>("clean") {
@@ -29,8 +29,23 @@ android {
   kotlinOptions {
     jvmTarget = "1.8"
   }
+
+  testOptions {
+    unitTests {
+      // Robolectric resolves the card styles and attributes from the merged resources
+      isIncludeAndroidResources = true
+    }
+  }
 }
 
 dependencies {
   implementation(versionCatalog.androidCore)
+  implementation(versionCatalog.tracing)
+  // only needed by apps using CardShadowItemDecoration, which bring their own RecyclerView
+  compileOnly(versionCatalog.recyclerview)
+
+  testImplementation(versionCatalog.junit)
+  testImplementation(versionCatalog.robolectric)
+  testImplementation(versionCatalog.testCore)
+  testImplementation(versionCatalog.recyclerview)
 }
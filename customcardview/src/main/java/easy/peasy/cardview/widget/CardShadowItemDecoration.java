@@ -0,0 +1,151 @@
+package easy.peasy.cardview.widget;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+
+/**
+ * Draws the shadows of all card views of a {@link RecyclerView} in one pass.
+ * <p>
+ * Once attached with {@link #attachToRecyclerView(RecyclerView)}, the card views which are items
+ * of the list stop drawing their own shadow, and the decoration draws the shadows of the visible
+ * cards below all items. Cards sharing a shadow are drawn one after another with one paint, so
+ * consecutive draws reuse the same bitmap and paint state. Only the shadows drawn by CardView
+ * itself are moved to the decoration, platform shadows are left to the platform.
+ */
+public class CardShadowItemDecoration extends RecyclerView.ItemDecoration {
+
+  // cards sharing an atlas are tinted in turn, alpha masks are shared by every shadow color
+  private static final Comparator<CardView> COLOR_ORDER = new Comparator<CardView>() {
+    @Override
+    public int compare(CardView first, CardView second) {
+      return Integer.compare(
+        first.getShadowBackground().getShadowStartColor(),
+        second.getShadowBackground().getShadowStartColor()
+      );
+    }
+  };
+
+  private final Paint mAtlasPaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+
+  // The cards of a frame per atlas, by identity, in the order their first card is drawn by the
+  // list. Cards with gradient shadows share the null atlas.
+  private final IdentityHashMap<ShadowCache.Atlas, ArrayList<CardView>> mBucketsByAtlas = new IdentityHashMap<>();
+
+  private final ArrayList<ArrayList<CardView>> mBuckets = new ArrayList<>();
+
+  // emptied buckets, reused by the next frames
+  private final ArrayList<ArrayList<CardView>> mSpareBuckets = new ArrayList<>();
+
+  @Nullable
+  private RecyclerView mRecyclerView;
+
+  private final RecyclerView.OnChildAttachStateChangeListener mChildAttachListener =
+    new RecyclerView.OnChildAttachStateChangeListener() {
+      @Override
+      public void onChildViewAttachedToWindow(@NonNull View view) {
+        setShadowDrawnExternally(view, true);
+      }
+
+      @Override
+      public void onChildViewDetachedFromWindow(@NonNull View view) {
+        // the view may be attached to another parent before it is reused by this list
+        setShadowDrawnExternally(view, false);
+      }
+    };
+
+  /**
+   * Attaches the decoration to the list, or detaches it if the list is null. The shadows of the
+   * card views which are items of the list are drawn by the decoration while it is attached.
+   */
+  public void attachToRecyclerView(@Nullable RecyclerView recyclerView) {
+    if (mRecyclerView == recyclerView) {
+      return;
+    }
+    if (mRecyclerView != null) {
+      mRecyclerView.removeOnChildAttachStateChangeListener(mChildAttachListener);
+      mRecyclerView.removeItemDecoration(this);
+      for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+        setShadowDrawnExternally(mRecyclerView.getChildAt(i), false);
+      }
+    }
+    mRecyclerView = recyclerView;
+    if (recyclerView != null) {
+      recyclerView.addItemDecoration(this);
+      recyclerView.addOnChildAttachStateChangeListener(mChildAttachListener);
+      for (int i = 0, count = recyclerView.getChildCount(); i < count; i++) {
+        setShadowDrawnExternally(recyclerView.getChildAt(i), true);
+      }
+    }
+  }
+
+  private static void setShadowDrawnExternally(View view, boolean external) {
+    if (view instanceof CardView) {
+      RoundRectDrawableWithShadow background = ((CardView) view).getShadowBackground();
+      if (background != null) {
+        background.setShadowDrawnExternally(external);
+      }
+    }
+  }
+
+  @Override
+  public void onDraw(@NonNull Canvas canvas, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+    for (int i = 0, count = parent.getChildCount(); i < count; i++) {
+      final View child = parent.getChildAt(i);
+      if (child instanceof CardView && child.getVisibility() == View.VISIBLE && child.getAlpha() > 0) {
+        final RoundRectDrawableWithShadow background = ((CardView) child).getShadowBackground();
+        if (background != null && background.isShadowDrawnExternally() && background.isShadowEnabled()) {
+          obtainBucket(background.getShadowAtlas()).add((CardView) child);
+        }
+      }
+    }
+
+    for (int bucket = 0, bucketCount = mBuckets.size(); bucket < bucketCount; bucket++) {
+      final ArrayList<CardView> cards = mBuckets.get(bucket);
+      // stable, so cards with the same color keep the order of the list
+      Collections.sort(cards, COLOR_ORDER);
+      for (int i = 0, count = cards.size(); i < count; i++) {
+        drawShadow(canvas, cards.get(i));
+      }
+      cards.clear();
+      mSpareBuckets.add(cards);
+    }
+    mBuckets.clear();
+    mBucketsByAtlas.clear();
+  }
+
+  private ArrayList<CardView> obtainBucket(@Nullable ShadowCache.Atlas atlas) {
+    ArrayList<CardView> cards = mBucketsByAtlas.get(atlas);
+    if (cards == null) {
+      final int spareCount = mSpareBuckets.size();
+      cards = spareCount > 0 ? mSpareBuckets.remove(spareCount - 1) : new ArrayList<CardView>();
+      mBucketsByAtlas.put(atlas, cards);
+      mBuckets.add(cards);
+    }
+    return cards;
+  }
+
+  private void drawShadow(Canvas canvas, CardView card) {
+    final RoundRectDrawableWithShadow background = card.getShadowBackground();
+    final int saved = canvas.save();
+    canvas.translate(card.getLeft(), card.getTop());
+    final Matrix matrix = card.getMatrix();
+    if (!matrix.isIdentity()) {
+      canvas.concat(matrix);
+    }
+    mAtlasPaint.setColor(background.getShadowStartColor());
+    mAtlasPaint.setAlpha(Math.round(background.getAlpha() * card.getAlpha()));
+    background.drawExternalShadow(canvas, mAtlasPaint);
+    canvas.restoreToCount(saved);
+  }
+}
@@ -16,34 +16,44 @@
 
 package easy.peasy.cardview.widget;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Path;
 import android.graphics.Rect;
-import android.graphics.drawable.ColorDrawable;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.RippleDrawable;
+import android.os.Build;
 import android.util.AttributeSet;
 import android.view.View;
+import android.view.ViewOutlineProvider;
 import android.widget.FrameLayout;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.Px;
-import androidx.core.content.ContextCompat;
 import androidx.core.view.ViewCompat;
+import androidx.tracing.Trace;
 import easy.peasy.cardview.R;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
 /**
  * A FrameLayout with a rounded corner background and shadow.
  * <p>
  * CardView uses <code>elevation</code> property on Lollipop for shadows and falls back to a
  * custom emulated shadow implementation on older platforms.
  * <p>
- * Due to expensive nature of rounded corner clipping, on platforms before Lollipop, CardView does
- * not clip its children that intersect with rounded corners. Instead, it adds padding to avoid such
- * intersection.
+ * By default CardView does not clip its children that intersect with rounded corners. Instead, it
+ * adds padding to avoid such intersection. Clipping can be enabled with
+ * {@link #setClipChildrenToCorners(boolean)}.
  * <p>
  * Before Lollipop, CardView adds padding to its content and draws shadows to that area. This
  * padding amount is equal to <code>maxCardElevation + (1 - cos45) * cornerRadius</code> on the
@@ -63,6 +73,10 @@ import easy.peasy.cardview.R;
  * Lollipop, it will change the shadow size. To avoid moving the View while shadow size is changing,
  * shadow size is clamped by {@link #getMaxCardElevation()}. If you want to change elevation
  * dynamically, you should call {@link #setMaxCardElevation(float)} when CardView is initialized.
+ * <p>
+ * The shadow is either drawn by CardView itself or rendered by the platform from the card outline,
+ * see {@link #SHADOW_IMPLEMENTATION_AUTO}. Both implementations reserve the same padding for the
+ * shadow, so the content area does not depend on the implementation.
  *
  * {@link R.attr#cardBackgroundColor}
  * {@link R.attr#cardCornerRadius}
@@ -73,17 +87,68 @@ import easy.peasy.cardview.R;
  * {@link R.attr#contentPaddingTop}
  * {@link R.attr#contentPaddingRight}
  * {@link R.attr#contentPaddingBottom}
+ * {@link R.attr#cardShadowRenderMode}
+ * {@link R.attr#cardShadowImplementation}
+ * {@link R.attr#cardAsyncShadowRendering}
+ * {@link R.attr#cardShadowAllSides}
+ * {@link R.attr#cardClipChildrenToCorners}
+ * {@link R.attr#cardSkeleton}
  */
 public class CardView extends FrameLayout {
 
-  private static final int[] COLOR_RIPPLE_ATTR = {android.R.attr.colorControlHighlight};
-  private static final CardViewImpl cardView;
+  /**
+   * The shadow is rendered once into a shared atlas of a corner tile and an edge strip and drawn
+   * with bitmap blits, which stretch with the card size without re-rasterizing.
+   */
+  public static final int SHADOW_RENDER_MODE_ATLAS = 0;
+
+  /**
+   * The shadow is drawn with a radial gradient path per corner and a gradient rect per edge on
+   * every frame.
+   */
+  public static final int SHADOW_RENDER_MODE_GRADIENT = 1;
+
+  @IntDef({SHADOW_RENDER_MODE_ATLAS, SHADOW_RENDER_MODE_GRADIENT})
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface ShadowRenderMode {
+  }
+
+  /**
+   * The platform shadow is used from Pie onwards, where shadow colors can be applied to it, and the
+   * compat shadow before.
+   */
+  public static final int SHADOW_IMPLEMENTATION_AUTO = 0;
+
+  /**
+   * The shadow is drawn by CardView with its shadow colors.
+   */
+  public static final int SHADOW_IMPLEMENTATION_COMPAT = 1;
+
+  /**
+   * The shadow is rendered by the platform from the card outline with {@link View#setElevation(float)}.
+   */
+  public static final int SHADOW_IMPLEMENTATION_PLATFORM = 2;
+
+  @IntDef({SHADOW_IMPLEMENTATION_AUTO, SHADOW_IMPLEMENTATION_COMPAT, SHADOW_IMPLEMENTATION_PLATFORM})
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface ShadowImplementation {
+  }
+
+  private static final CardViewImpl sCompatImpl;
+  private static final CardViewImpl sPlatformImpl;
 
   static {
-    cardView = new CardViewBaseImpl();
-    cardView.initStatic();
+    sCompatImpl = new CardViewBaseImpl();
+    sCompatImpl.initStatic();
+    sPlatformImpl = new CardViewApi21Impl();
+    sPlatformImpl.initStatic();
   }
 
+  private final CardViewImpl cardView;
+
+  @Nullable
+  static volatile CardViewMetrics sMetrics;
+
   /**
    * CardView requires to have a particular minimum size to draw shadows before API 21. If
    * developer also sets min width/height, they might be overridden.
@@ -97,7 +162,68 @@ public class CardView extends FrameLayout {
 
   final Rect mShadowBounds = new Rect();
 
-  private final View backgroundView;
+  private final float[] mRadiusScratch = new float[4];
+
+  private boolean mClipChildrenToCorners;
+
+  /**
+   * Clip of the children for per-corner radii, which outlines can not clip to, and for the compat
+   * shadow. Null while the children are clipped to the outline or not clipped.
+   */
+  @Nullable
+  private Path mCornerClipPath;
+  private boolean mCornerClipPathDirty;
+  private final RectF mCornerClipBounds = new RectF();
+
+  private boolean mClippedToOutline;
+
+  /**
+   * The outline provider replaced to clip the children to the outline, restored when they are no
+   * longer clipped.
+   */
+  @Nullable
+  private ViewOutlineProvider mReplacedOutlineProvider;
+  private boolean mOutlineProviderReplaced;
+
+  private boolean mSkeleton;
+
+  /**
+   * Shape of the shimmer drawn instead of the children of a skeleton card. Null unless the card is
+   * a skeleton.
+   */
+  @Nullable
+  private Path mSkeletonPath;
+  private boolean mSkeletonPathDirty;
+
+  /**
+   * Inputs and result of the last {@link #onMeasure(int, int)}. Parents which measure their
+   * children more than once per layout pass get the cached result as long as the measure specs are
+   * the same and neither the card nor its children requested a layout.
+   */
+  private boolean mMeasureCacheValid;
+  private int mLastWidthMeasureSpec, mLastHeightMeasureSpec;
+  private int mLastMeasuredWidth, mLastMeasuredHeight;
+
+  /**
+   * While an {@link Editor} is applied, layout requests are deferred and issued once at its end.
+   */
+  private boolean mLayoutBatched;
+  private boolean mLayoutRequestPending;
+
+  /**
+   * The topmost child covering the card body after the last layout. While it is opaque, the card
+   * body is not drawn below it, see {@link #isCardBodyCovered()}.
+   */
+  @Nullable
+  private View mCoveringChild;
+  private boolean mCardBodyCovered;
+
+  @Nullable
+  private ValueAnimator mElevationAnimator;
+
+  @Nullable
+  private ValueAnimator mRadiiAnimator;
+  private final float[] mAnimatedRadii = new float[4];
 
   public CardView(@NonNull Context context) {
     this(context, null);
@@ -110,61 +236,115 @@ public class CardView extends FrameLayout {
   public CardView(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
     super(context, attrs, defStyleAttr);
 
-    TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.CardView, defStyleAttr, R.style.CardView);
-    ViewCompat.saveAttributeDataForStyleable(this, context, R.styleable.CardView, attrs, a, defStyleAttr, R.style.CardView);
-    ColorStateList backgroundColor = ColorStateList.valueOf(ContextCompat.getColor(context, android.R.color.white));
-    float radius = a.getDimension(R.styleable.CardView_cardCornerRadius, 0);
-    float radiusTopLeft = a.getDimension(R.styleable.CardView_cardCornerRadiusTopLeft, 0);
-    float radiusTopRight = a.getDimension(R.styleable.CardView_cardCornerRadiusTopRight, 0);
-    float radiusBottomRight = a.getDimension(R.styleable.CardView_cardCornerRadiusBottomRight, 0);
-    float radiusBottomLeft = a.getDimension(R.styleable.CardView_cardCornerRadiusBottomLeft, 0);
-    CornerRadius cornerRadius = CornerRadius.build(radius, radiusTopLeft, radiusTopRight, radiusBottomRight, radiusBottomLeft);
-    float elevation = a.getDimension(R.styleable.CardView_cardElevation, 0);
-    float maxElevation = a.getDimension(R.styleable.CardView_cardMaxElevation, 0);
-    int defaultPadding = a.getDimensionPixelSize(R.styleable.CardView_contentPadding, 0);
-    mContentPadding.left = a.getDimensionPixelSize(R.styleable.CardView_contentPaddingLeft, defaultPadding);
-    mContentPadding.top = a.getDimensionPixelSize(R.styleable.CardView_contentPaddingTop, defaultPadding);
-    mContentPadding.right = a.getDimensionPixelSize(R.styleable.CardView_contentPaddingRight, defaultPadding);
-    mContentPadding.bottom = a.getDimensionPixelSize(R.styleable.CardView_contentPaddingBottom, defaultPadding);
-    if (elevation > maxElevation) {
-      maxElevation = elevation;
-    }
-    mUserSetMinWidth = a.getDimensionPixelSize(R.styleable.CardView_android_minWidth, 0);
-    mUserSetMinHeight = a.getDimensionPixelSize(R.styleable.CardView_android_minHeight, 0);
-    int shadowStartColor = a.getColor(R.styleable.CardView_cardShadowStartColor, 0);
-    int shadowEndColor = a.getColor(R.styleable.CardView_cardShadowEndColor, 0);
-    int rippleColor = a.getColor(R.styleable.CardView_rippleColor, 0);
-    if (rippleColor == 0) {
-      final TypedArray aa = getContext().obtainStyledAttributes(COLOR_RIPPLE_ATTR);
-      rippleColor = aa.getColor(0, 0);
-      aa.recycle();
-    }
-    CardViewDrawable cardViewDrawable = null;
-    if (a.hasValue(R.styleable.CardView_cardBackgroundStartColor) && a.hasValue(R.styleable.CardView_cardBackgroundEndColor)){
-      int startColor = a.getColor(R.styleable.CardView_cardBackgroundStartColor, 0);
-      int endColor = a.getColor(R.styleable.CardView_cardBackgroundEndColor, 0);
-      cardViewDrawable = new CardViewDrawable(startColor, endColor, cornerRadius, rippleColor);
-    } else if (a.hasValue(R.styleable.CardView_cardBackgroundColor)) {
-      int color = a.getColor(R.styleable.CardView_cardBackgroundColor, 0);
-      cardViewDrawable = new CardViewDrawable(color, cornerRadius, rippleColor);
-    }
-    a.recycle();
-
-    cardView.initialize(mCardViewDelegate, context, backgroundColor, cornerRadius, elevation, maxElevation, shadowStartColor, shadowEndColor);
-
-    backgroundView = new View(context);
-    if (cardViewDrawable != null) {
-      backgroundView.setBackground(cardViewDrawable.getDrawable());
-    } else {
-      backgroundView.setBackground(
-        new RippleDrawable(
-          ColorStateList.valueOf(rippleColor),
-          new ColorDrawable(getResources().getColor(android.R.color.white)),
-          null
-        )
-      );
+    final CardViewMetrics metrics = sMetrics;
+    final long startNanos = metrics != null ? System.nanoTime() : 0;
+    Trace.beginSection("CardView#init");
+    try {
+      Trace.beginSection("CardView#parseAttributes");
+      CardViewSpec spec;
+      try {
+        final CardViewStyleCache.Key key = CardViewStyleCache.obtainKey(context, attrs, defStyleAttr, R.style.CardView);
+        spec = CardViewStyleCache.get(key);
+        if (spec == null) {
+          TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.CardView, defStyleAttr, R.style.CardView);
+          ViewCompat.saveAttributeDataForStyleable(this, context, R.styleable.CardView, attrs, a, defStyleAttr, R.style.CardView);
+          spec = CardViewSpec.fromTypedArray(context, a);
+          a.recycle();
+          CardViewStyleCache.put(key, spec);
+        }
+      } finally {
+        Trace.endSection();
+      }
+
+      cardView = selectImpl(spec.mShadowImplementation);
+      initialize(context, spec);
+    } finally {
+      Trace.endSection();
+    }
+    if (metrics != null) {
+      metrics.onInflate(System.nanoTime() - startNanos);
     }
-    addView(backgroundView);
+  }
+
+  /**
+   * Creates a card view from a spec without reading any attribute or resource. This is the
+   * cheapest way to create many cards of the same style in code or from a
+   * {@link android.view.LayoutInflater.Factory2}.
+   *
+   * @param spec The values of the card, e.g. resolved once with
+   *             {@link CardViewSpec#fromStyle(Context, int, int)}
+   */
+  public CardView(@NonNull Context context, @NonNull CardViewSpec spec) {
+    super(context);
+
+    final CardViewMetrics metrics = sMetrics;
+    final long startNanos = metrics != null ? System.nanoTime() : 0;
+    Trace.beginSection("CardView#init");
+    try {
+      cardView = selectImpl(spec.mShadowImplementation);
+      initialize(context, spec);
+    } finally {
+      Trace.endSection();
+    }
+    if (metrics != null) {
+      metrics.onInflate(System.nanoTime() - startNanos);
+    }
+  }
+
+  private void initialize(Context context, CardViewSpec spec) {
+    mContentPadding.set(spec.mContentPaddingLeft, spec.mContentPaddingTop, spec.mContentPaddingRight, spec.mContentPaddingBottom);
+    mUserSetMinWidth = spec.mMinWidth;
+    mUserSetMinHeight = spec.mMinHeight;
+    cardView.initialize(mCardViewDelegate, context, spec);
+    // The card and its ripple are drawn by the card background, so no child view is needed.
+    cardView.setCardDrawable(mCardViewDelegate, spec.createCardDrawable());
+    if (spec.mClipChildrenToCorners) {
+      setClipChildrenToCorners(true);
+    }
+    setSkeleton(spec.mSkeleton);
+  }
+
+  /**
+   * Sets the listener receiving metrics of all card views, or null to disable metrics.
+   * <p>
+   * While no listener is set, the only cost is a field read per measured event. Trace sections
+   * are emitted independently of the listener and are visible when tracing is enabled.
+   *
+   * @param metrics The listener, usually forwarding to an app telemetry
+   */
+  public static void setMetrics(@Nullable CardViewMetrics metrics) {
+    sMetrics = metrics;
+  }
+
+  /**
+   * Clears the specs cached for inflated card views. Card views inflated with the same theme and
+   * attributes share a resolved spec, which is dropped on configuration changes. Call this after
+   * modifying a theme in place, e.g. with {@link android.content.res.Resources.Theme#applyStyle(int, boolean)}.
+   */
+  public static void clearStyleCache() {
+    CardViewStyleCache.clear();
+  }
+
+  private static CardViewImpl selectImpl(@ShadowImplementation int shadowImplementation) {
+    switch (shadowImplementation) {
+      case SHADOW_IMPLEMENTATION_COMPAT:
+        return sCompatImpl;
+      case SHADOW_IMPLEMENTATION_PLATFORM:
+        return sPlatformImpl;
+      default:
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? sPlatformImpl : sCompatImpl;
+    }
+  }
+
+  /**
+   * Returns the shadow implementation selected for the card view.
+   *
+   * @return {@link #SHADOW_IMPLEMENTATION_COMPAT} or {@link #SHADOW_IMPLEMENTATION_PLATFORM}
+   * {@link R.attr#cardShadowImplementation}
+   */
+  @ShadowImplementation
+  public int getShadowImplementation() {
+    return cardView == sPlatformImpl ? SHADOW_IMPLEMENTATION_PLATFORM : SHADOW_IMPLEMENTATION_COMPAT;
   }
 
   @Override
@@ -195,11 +375,53 @@ public class CardView extends FrameLayout {
    */
   public void setContentPadding(@Px int left, @Px int top, @Px int right, @Px int bottom) {
     mContentPadding.set(left, top, right, bottom);
+    invalidateMeasureCache();
     cardView.updatePadding(mCardViewDelegate);
   }
 
+  @Override
+  public void requestLayout() {
+    // also reached when a child requests a layout
+    invalidateMeasureCache();
+    if (mLayoutBatched) {
+      mLayoutRequestPending = true;
+      return;
+    }
+    super.requestLayout();
+  }
+
+  @Override
+  public void forceLayout() {
+    invalidateMeasureCache();
+    super.forceLayout();
+  }
+
+  private void invalidateMeasureCache() {
+    mMeasureCacheValid = false;
+  }
+
   @Override
   protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    final CardViewMetrics metrics = sMetrics;
+    final long startNanos = metrics != null ? System.nanoTime() : 0;
+    Trace.beginSection("CardView#onMeasure");
+    try {
+      measureCard(widthMeasureSpec, heightMeasureSpec);
+    } finally {
+      Trace.endSection();
+    }
+    if (metrics != null) {
+      metrics.onMeasure(System.nanoTime() - startNanos);
+    }
+  }
+
+  private void measureCard(int widthMeasureSpec, int heightMeasureSpec) {
+    if (mMeasureCacheValid && widthMeasureSpec == mLastWidthMeasureSpec && heightMeasureSpec == mLastHeightMeasureSpec) {
+      // children keep their measured size from the cached pass
+      setMeasuredDimension(mLastMeasuredWidth, mLastMeasuredHeight);
+      return;
+    }
+
     final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
     int contentWidth = (int) Math.ceil(cardView.getMinWidth(mCardViewDelegate));
     int contentHeight = (int) Math.ceil(cardView.getMinHeight(mCardViewDelegate));
@@ -210,9 +432,6 @@ public class CardView extends FrameLayout {
     } else {
       for (int i = 0; i < getChildCount(); i++) {
         View childView = getChildAt(i);
-
-        if (childView == backgroundView) continue;
-
         childView.measure(widthMeasureSpec, heightMeasureSpec);
 
         contentWidth = Math.max(contentWidth, childView.getMeasuredWidth());
@@ -225,23 +444,24 @@ public class CardView extends FrameLayout {
 
     setMeasuredDimension(measuredWidth, measuredHeight);
 
-    int backgroundWidth = measuredWidth - mShadowBounds.left - mShadowBounds.right;
-    int backgroundHeight = measuredHeight - mShadowBounds.top - mShadowBounds.bottom;
-    int backgroundWidthMeasureSpec = MeasureSpec.makeMeasureSpec(backgroundWidth, MeasureSpec.EXACTLY);
-    int backgroundHeightMeasureSpec = MeasureSpec.makeMeasureSpec(backgroundHeight, MeasureSpec.EXACTLY);
-
-    backgroundView.measure(backgroundWidthMeasureSpec, backgroundHeightMeasureSpec);
+    mLastWidthMeasureSpec = widthMeasureSpec;
+    mLastHeightMeasureSpec = heightMeasureSpec;
+    mLastMeasuredWidth = measuredWidth;
+    mLastMeasuredHeight = measuredHeight;
+    mMeasureCacheValid = true;
   }
 
   @Override
   public void setMinimumWidth(int minWidth) {
     mUserSetMinWidth = minWidth;
+    invalidateMeasureCache();
     super.setMinimumWidth(minWidth);
   }
 
   @Override
   public void setMinimumHeight(int minHeight) {
     mUserSetMinHeight = minHeight;
+    invalidateMeasureCache();
     super.setMinimumHeight(minHeight);
   }
 
@@ -323,8 +543,12 @@ public class CardView extends FrameLayout {
    * @see #setRadius(float)
    */
   public void setRadius(float radius) {
-    float[] radii = new float[] {radius, radius, radius, radius};
+    // the radii are copied by the card, so the array is reused
+    final float[] radii = mRadiusScratch;
+    radii[0] = radii[1] = radii[2] = radii[3] = radius;
+    invalidateMeasureCache();
     cardView.setCornerRadii(mCardViewDelegate, radii);
+    updateCornerClip();
   }
 
   /**
@@ -334,7 +558,286 @@ public class CardView extends FrameLayout {
    * @see #setRadii(float[])
    */
   public void setRadii(float[] radii) {
+    invalidateMeasureCache();
     cardView.setCornerRadii(mCardViewDelegate, radii);
+    updateCornerClip();
+  }
+
+  /**
+   * Animates the corner radii of the CardView, e.g. to morph the corners of an expanding card. The
+   * background, the ripple mask and the shadow follow the radii on every frame. The shadow paths
+   * are reshaped in place during the animation and the card is only laid out again if its minimum
+   * size changes. A running radii animation is cancelled.
+   *
+   * @param radii    The radii in pixels to animate to, ordered top-left, top-right, bottom-right,
+   *                 bottom-left
+   * @param duration The duration of the animation in milliseconds.
+   * @see #setRadii(float[])
+   */
+  public void animateRadii(@NonNull float[] radii, long duration) {
+    if (radii.length != 4) {
+      throw new IllegalArgumentException("Invalid count radii " + radii.length + ". Must be == 4");
+    }
+    for (float radius : radii) {
+      if (radius < 0f) {
+        throw new IllegalArgumentException("Invalid radius " + radius + ". Must be >= 0");
+      }
+    }
+    if (mRadiiAnimator != null) {
+      mRadiiAnimator.cancel();
+    }
+    final float[] endRadii = radii.clone();
+    if (duration <= 0) {
+      setRadii(endRadii);
+      return;
+    }
+    final float[] startRadii = getRadii();
+    cardView.startRadiiAnimation(mCardViewDelegate, startRadii, endRadii);
+    final ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+    animator.setDuration(duration);
+    animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+      @Override
+      public void onAnimationUpdate(ValueAnimator animation) {
+        // the fraction of the animation is not boxed, unlike its value
+        final float fraction = animation.getAnimatedFraction();
+        final float[] animatedRadii = mAnimatedRadii;
+        for (int i = 0; i < animatedRadii.length; i++) {
+          animatedRadii[i] = startRadii[i] + (endRadii[i] - startRadii[i]) * fraction;
+        }
+        setRadii(animatedRadii);
+      }
+    });
+    animator.addListener(new AnimatorListenerAdapter() {
+      @Override
+      public void onAnimationEnd(Animator animation) {
+        if (mRadiiAnimator == animation) {
+          mRadiiAnimator = null;
+        }
+        cardView.endRadiiAnimation(mCardViewDelegate);
+      }
+    });
+    mRadiiAnimator = animator;
+    animator.start();
+  }
+
+  /**
+   * Updates whether the children of the CardView are clipped to its rounded corners, which spares
+   * rounding the corners of images shown in the card.
+   * <p>
+   * Uniform radii of cards with the platform shadow clip to the outline of the card, which is done
+   * by the render thread. Per-corner radii clip to a path, as outlines can only clip to round rects
+   * before Tiramisu, and so do cards with the compat shadow, which an outline clip would cut off.
+   *
+   * @param clip true to clip the children to the rounded corners
+   * {@link R.attr#cardClipChildrenToCorners}
+   */
+  public void setClipChildrenToCorners(boolean clip) {
+    mClipChildrenToCorners = clip;
+    if (clip && cardView == sPlatformImpl && !mOutlineProviderReplaced
+      && !(getOutlineProvider() instanceof CardViewOutlineProvider)) {
+      mReplacedOutlineProvider = getOutlineProvider();
+      mOutlineProviderReplaced = true;
+      setOutlineProvider(new CardViewOutlineProvider(mCardViewDelegate));
+    } else if (!clip && mOutlineProviderReplaced) {
+      setOutlineProvider(mReplacedOutlineProvider);
+      mReplacedOutlineProvider = null;
+      mOutlineProviderReplaced = false;
+    }
+    updateCornerClip();
+  }
+
+  /**
+   * Returns whether the children of the CardView are clipped to its rounded corners.
+   *
+   * @return true if the children are clipped to the rounded corners
+   */
+  public boolean isClipChildrenToCorners() {
+    return mClipChildrenToCorners;
+  }
+
+  /**
+   * Updates whether the CardView is shown as a loading placeholder. A skeleton card draws a shimmer
+   * across its rounded body instead of its children, which are still laid out. The shimmers of all
+   * skeleton cards are driven by one shared gradient and frame callback, so placeholders need no
+   * animators of their own.
+   *
+   * @param skeleton true to show the card as a skeleton
+   * {@link R.attr#cardSkeleton}
+   */
+  public void setSkeleton(boolean skeleton) {
+    if (mSkeleton == skeleton) {
+      return;
+    }
+    mSkeleton = skeleton;
+    if (skeleton) {
+      mSkeletonPath = new Path();
+      mSkeletonPathDirty = true;
+      if (isAttachedToWindow()) {
+        ShimmerClock.getInstance(getContext()).register(this);
+      }
+    } else {
+      mSkeletonPath = null;
+      if (isAttachedToWindow()) {
+        ShimmerClock.getInstance(getContext()).unregister(this);
+      }
+    }
+    invalidate();
+  }
+
+  /**
+   * Returns whether the CardView is shown as a loading placeholder.
+   *
+   * @return true if the card is a skeleton
+   */
+  public boolean isSkeleton() {
+    return mSkeleton;
+  }
+
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    if (mSkeleton) {
+      ShimmerClock.getInstance(getContext()).register(this);
+    }
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    if (mSkeleton) {
+      ShimmerClock.getInstance(getContext()).unregister(this);
+    }
+  }
+
+  private void updateCornerClip() {
+    mSkeletonPathDirty = true;
+    // the compat shadow is drawn in the padding, outside of the outline
+    final boolean clipToOutline = mClipChildrenToCorners && cardView == sPlatformImpl
+      && cardView.getCornerRadius(mCardViewDelegate).isUniform();
+    final boolean clipToPath = mClipChildrenToCorners && !clipToOutline;
+    if (mClippedToOutline != clipToOutline) {
+      mClippedToOutline = clipToOutline;
+      setClipToOutline(clipToOutline);
+    }
+    if (clipToPath) {
+      if (mCornerClipPath == null) {
+        mCornerClipPath = new Path();
+      }
+      mCornerClipPathDirty = true;
+    } else {
+      mCornerClipPath = null;
+    }
+    if (mClipChildrenToCorners) {
+      invalidateOutline();
+      invalidate();
+    }
+  }
+
+  @Override
+  protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+    super.onSizeChanged(w, h, oldw, oldh);
+    mCornerClipPathDirty = true;
+    mSkeletonPathDirty = true;
+  }
+
+  @Override
+  protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+    super.onLayout(changed, left, top, right, bottom);
+    mCoveringChild = null;
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+      // property changes of children are only reported by onDescendantInvalidated()
+      return;
+    }
+    for (int i = getChildCount() - 1; i >= 0; i--) {
+      final View child = getChildAt(i);
+      if (coversCardBody(child)) {
+        mCoveringChild = child;
+        break;
+      }
+    }
+  }
+
+  private boolean coversCardBody(View child) {
+    return child.getLeft() <= mShadowBounds.left
+      && child.getTop() <= mShadowBounds.top
+      && child.getRight() >= getWidth() - mShadowBounds.right
+      && child.getBottom() >= getHeight() - mShadowBounds.bottom;
+  }
+
+  /**
+   * Returns whether the card body is hidden by an opaque child, in which case drawing it is
+   * overdraw.
+   */
+  private boolean isCardBodyCovered() {
+    final View child = mCoveringChild;
+    return child != null
+      && child.getParent() == this
+      && child.getVisibility() == VISIBLE
+      && child.getAnimation() == null
+      && child.isOpaque()
+      && child.getMatrix().isIdentity()
+      && coversCardBody(child);
+  }
+
+  private boolean shouldSkipCardBody() {
+    // the shimmer of a skeleton card covers the body
+    return mSkeleton || isCardBodyCovered();
+  }
+
+  @Override
+  public void draw(Canvas canvas) {
+    final RoundRectDrawableWithShadow background = getShadowBackground();
+    if (background != null) {
+      // the background is recorded again whenever the card is drawn
+      mCardBodyCovered = shouldSkipCardBody();
+      background.setCardBodyCovered(mCardBodyCovered);
+    }
+    super.draw(canvas);
+  }
+
+  @Override
+  public void onDescendantInvalidated(@NonNull View child, @NonNull View target) {
+    super.onDescendantInvalidated(child, target);
+    // property changes of a child, like its alpha, do not draw the card again
+    if (child == mCoveringChild && mCardBodyCovered != shouldSkipCardBody()) {
+      invalidate();
+    }
+  }
+
+  @Override
+  protected void dispatchDraw(Canvas canvas) {
+    final Path skeletonPath = mSkeletonPath;
+    if (skeletonPath != null) {
+      if (mSkeletonPathDirty) {
+        mSkeletonPathDirty = false;
+        buildCardBodyPath(skeletonPath);
+      }
+      final int saved = canvas.save();
+      canvas.clipPath(skeletonPath);
+      ShimmerClock.getInstance(getContext()).draw(canvas, getWidth());
+      canvas.restoreToCount(saved);
+      return;
+    }
+    final Path clipPath = mCornerClipPath;
+    if (clipPath == null) {
+      super.dispatchDraw(canvas);
+      return;
+    }
+    if (mCornerClipPathDirty) {
+      mCornerClipPathDirty = false;
+      buildCardBodyPath(clipPath);
+    }
+    final int saved = canvas.save();
+    canvas.clipPath(clipPath);
+    super.dispatchDraw(canvas);
+    canvas.restoreToCount(saved);
+  }
+
+  private void buildCardBodyPath(Path path) {
+    // the card itself, without the area reserved for the shadow
+    mCornerClipBounds.set(mShadowBounds.left, mShadowBounds.top, getWidth() - mShadowBounds.right, getHeight() - mShadowBounds.bottom);
+    path.reset();
+    path.addRoundRect(mCornerClipBounds, cardView.getCornerRadius(mCardViewDelegate).getRadii(), Path.Direction.CW);
   }
 
   /**
@@ -370,6 +873,47 @@ public class CardView extends FrameLayout {
     return cardView.getElevation(mCardViewDelegate);
   }
 
+  /**
+   * Animates the backward compatible elevation of the CardView, e.g. to lift the card while it is
+   * pressed. The shadows of the elevations in between are rendered on a background thread ahead of
+   * the animation, so its frames select cached shadows instead of rebuilding them. A running
+   * elevation animation is cancelled.
+   *
+   * @param elevation The backward compatible elevation in pixels to animate to.
+   * @param duration  The duration of the animation in milliseconds.
+   * @see #setCardElevation(float)
+   */
+  public void animateCardElevation(float elevation, long duration) {
+    if (mElevationAnimator != null) {
+      mElevationAnimator.cancel();
+    }
+    final float startElevation = getCardElevation();
+    if (startElevation == elevation || duration <= 0) {
+      setCardElevation(elevation);
+      return;
+    }
+    cardView.startElevationAnimation(mCardViewDelegate, startElevation, elevation);
+    final ValueAnimator animator = ValueAnimator.ofFloat(startElevation, elevation);
+    animator.setDuration(duration);
+    animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+      @Override
+      public void onAnimationUpdate(ValueAnimator animation) {
+        setCardElevation((float) animation.getAnimatedValue());
+      }
+    });
+    animator.addListener(new AnimatorListenerAdapter() {
+      @Override
+      public void onAnimationEnd(Animator animation) {
+        if (mElevationAnimator == animation) {
+          mElevationAnimator = null;
+        }
+        cardView.endElevationAnimation(mCardViewDelegate);
+      }
+    });
+    mElevationAnimator = animator;
+    animator.start();
+  }
+
   /**
    * Updates the backward compatible maximum elevation of the CardView.
    * <p>
@@ -381,6 +925,7 @@ public class CardView extends FrameLayout {
    * @see #getMaxCardElevation()
    */
   public void setMaxCardElevation(float maxElevation) {
+    invalidateMeasureCache();
     cardView.setMaxElevation(mCardViewDelegate, maxElevation);
   }
 
@@ -429,6 +974,270 @@ public class CardView extends FrameLayout {
     return cardView.getShadowEndColor(mCardViewDelegate);
   }
 
+  /**
+   * Updates the way the shadow of the card view is rendered.
+   *
+   * @param mode {@link #SHADOW_RENDER_MODE_ATLAS} or {@link #SHADOW_RENDER_MODE_GRADIENT}
+   * {@link R.attr#cardShadowRenderMode}
+   */
+  public void setShadowRenderMode(@ShadowRenderMode int mode) {
+    cardView.setShadowRenderMode(mCardViewDelegate, mode);
+  }
+
+  /**
+   * Returns the way the shadow of the card view is rendered.
+   *
+   * @return {@link #SHADOW_RENDER_MODE_ATLAS} or {@link #SHADOW_RENDER_MODE_GRADIENT}
+   */
+  @ShadowRenderMode
+  public int getShadowRenderMode() {
+    return cardView.getShadowRenderMode(mCardViewDelegate);
+  }
+
+  /**
+   * Updates whether shadows missing from the shadow cache are rendered on a background thread.
+   * Until the shadow is ready, the card draws it like {@link #SHADOW_RENDER_MODE_GRADIENT}, which
+   * keeps the first frames of a fast scroll from rendering shadows on the main thread. Renders
+   * dropped to keep up with a fling are not requested again until the shadow changes. Only used
+   * by {@link #SHADOW_RENDER_MODE_ATLAS}.
+   *
+   * @param async true to render shadows on a background thread
+   * {@link R.attr#cardAsyncShadowRendering}
+   */
+  public void setAsyncShadowRendering(boolean async) {
+    cardView.setAsyncShadowRendering(mCardViewDelegate, async);
+  }
+
+  /**
+   * Returns whether shadows missing from the shadow cache are rendered on a background thread.
+   *
+   * @return true if shadows are rendered on a background thread
+   */
+  public boolean isAsyncShadowRendering() {
+    return cardView.isAsyncShadowRendering(mCardViewDelegate);
+  }
+
+  /**
+   * Updates whether the shadow is drawn on all four sides of the card instead of below it only.
+   * The card reserves room for the shadow on every side, which shrinks the content area.
+   *
+   * @param allSides true to draw the shadow on all sides
+   * {@link R.attr#cardShadowAllSides}
+   */
+  public void setShadowAllSides(boolean allSides) {
+    cardView.setShadowAllSides(mCardViewDelegate, allSides);
+  }
+
+  /**
+   * Returns whether the shadow is drawn on all four sides of the card.
+   *
+   * @return true if the shadow is drawn on all sides
+   */
+  public boolean isShadowAllSides() {
+    return cardView.isShadowAllSides(mCardViewDelegate);
+  }
+
+  /**
+   * Starts a transaction of property changes. The changes are applied together by
+   * {@link Editor#apply()} with a single padding update, layout request and invalidation, which
+   * is cheaper than calling the setters one by one, e.g. when binding a card in a list.
+   * <pre>
+   * cardView.edit()
+   *   .setRadius(radius)
+   *   .setMaxCardElevation(elevation)
+   *   .setCardShadowStartColor(color)
+   *   .apply();
+   * </pre>
+   *
+   * @return An editor for this card view
+   */
+  @NonNull
+  public Editor edit() {
+    return new Editor();
+  }
+
+  /**
+   * Property changes of a card view applied together, see {@link #edit()}.
+   */
+  public final class Editor {
+
+    private static final int RADII = 1;
+    private static final int ELEVATION = 1 << 1;
+    private static final int MAX_ELEVATION = 1 << 2;
+    private static final int CONTENT_PADDING = 1 << 3;
+    private static final int SHADOW_START_COLOR = 1 << 4;
+    private static final int SHADOW_END_COLOR = 1 << 5;
+    private static final int BACKGROUND_COLOR = 1 << 6;
+
+    private int mChanges;
+    private final float[] mRadii = new float[4];
+    private float mElevation;
+    private float mMaxElevation;
+    private int mPaddingLeft, mPaddingTop, mPaddingRight, mPaddingBottom;
+    private int mShadowStartColor;
+    private int mShadowEndColor;
+    @Nullable
+    private ColorStateList mBackgroundColor;
+
+    Editor() {
+    }
+
+    /**
+     * @see CardView#setRadius(float)
+     */
+    @NonNull
+    public Editor setRadius(float radius) {
+      mRadii[0] = mRadii[1] = mRadii[2] = mRadii[3] = radius;
+      mChanges |= RADII;
+      return this;
+    }
+
+    /**
+     * @see CardView#setRadii(float[])
+     */
+    @NonNull
+    public Editor setRadii(@NonNull float[] radii) {
+      if (radii.length != mRadii.length) {
+        throw new IllegalArgumentException("Invalid count radii " + radii.length + ". Must be == 4");
+      }
+      System.arraycopy(radii, 0, mRadii, 0, mRadii.length);
+      mChanges |= RADII;
+      return this;
+    }
+
+    /**
+     * @see CardView#setCardElevation(float)
+     */
+    @NonNull
+    public Editor setCardElevation(float elevation) {
+      mElevation = elevation;
+      mChanges |= ELEVATION;
+      return this;
+    }
+
+    /**
+     * @see CardView#setMaxCardElevation(float)
+     */
+    @NonNull
+    public Editor setMaxCardElevation(float maxElevation) {
+      mMaxElevation = maxElevation;
+      mChanges |= MAX_ELEVATION;
+      return this;
+    }
+
+    /**
+     * @see CardView#setContentPadding(int, int, int, int)
+     */
+    @NonNull
+    public Editor setContentPadding(@Px int left, @Px int top, @Px int right, @Px int bottom) {
+      mPaddingLeft = left;
+      mPaddingTop = top;
+      mPaddingRight = right;
+      mPaddingBottom = bottom;
+      mChanges |= CONTENT_PADDING;
+      return this;
+    }
+
+    /**
+     * @see CardView#setCardShadowStartColor(int)
+     */
+    @NonNull
+    public Editor setCardShadowStartColor(@ColorInt int color) {
+      mShadowStartColor = color;
+      mChanges |= SHADOW_START_COLOR;
+      return this;
+    }
+
+    /**
+     * @see CardView#setCardShadowEndColor(int)
+     */
+    @NonNull
+    public Editor setCardShadowEndColor(@ColorInt int color) {
+      mShadowEndColor = color;
+      mChanges |= SHADOW_END_COLOR;
+      return this;
+    }
+
+    /**
+     * @see CardView#setCardBackgroundColor(int)
+     */
+    @NonNull
+    public Editor setCardBackgroundColor(@ColorInt int color) {
+      return setCardBackgroundColor(ColorStateList.valueOf(color));
+    }
+
+    /**
+     * @see CardView#setCardBackgroundColor(ColorStateList)
+     */
+    @NonNull
+    public Editor setCardBackgroundColor(@Nullable ColorStateList color) {
+      mBackgroundColor = color;
+      mChanges |= BACKGROUND_COLOR;
+      return this;
+    }
+
+    /**
+     * Applies the changes to the card view. The editor can be applied again.
+     */
+    public void apply() {
+      if (mChanges == 0) {
+        return;
+      }
+      final boolean layoutBatched = mLayoutBatched;
+      mLayoutBatched = true;
+      cardView.beginBatch(mCardViewDelegate);
+      try {
+        if ((mChanges & RADII) != 0) {
+          CardView.this.setRadii(mRadii);
+        }
+        if ((mChanges & MAX_ELEVATION) != 0) {
+          CardView.this.setMaxCardElevation(mMaxElevation);
+        }
+        if ((mChanges & ELEVATION) != 0) {
+          CardView.this.setCardElevation(mElevation);
+        }
+        if ((mChanges & CONTENT_PADDING) != 0) {
+          CardView.this.setContentPadding(mPaddingLeft, mPaddingTop, mPaddingRight, mPaddingBottom);
+        }
+        if ((mChanges & SHADOW_START_COLOR) != 0) {
+          CardView.this.setCardShadowStartColor(mShadowStartColor);
+        }
+        if ((mChanges & SHADOW_END_COLOR) != 0) {
+          CardView.this.setCardShadowEndColor(mShadowEndColor);
+        }
+        if ((mChanges & BACKGROUND_COLOR) != 0) {
+          CardView.this.setCardBackgroundColor(mBackgroundColor);
+        }
+      } finally {
+        cardView.endBatch(mCardViewDelegate);
+        mLayoutBatched = layoutBatched;
+      }
+      if (!layoutBatched && mLayoutRequestPending) {
+        mLayoutRequestPending = false;
+        requestLayout();
+      }
+    }
+  }
+
+  /**
+   * Returns the drawable of the shadow and the card, or null if the background was replaced.
+   */
+  @Nullable
+  RoundRectDrawableWithShadow getShadowBackground() {
+    final Drawable background = mCardViewDelegate.getCardBackground();
+    return background instanceof RoundRectDrawableWithShadow ? (RoundRectDrawableWithShadow) background : null;
+  }
+
+  @Override
+  public void invalidateDrawable(@NonNull Drawable drawable) {
+    super.invalidateDrawable(drawable);
+    final RoundRectDrawableWithShadow background = getShadowBackground();
+    if (drawable == background && background.isShadowDrawnExternally() && getParent() instanceof View) {
+      // the shadow is drawn by the parent, which is not redrawn with the card
+      ((View) getParent()).invalidate();
+    }
+  }
+
   private final CardViewDelegate mCardViewDelegate = new CardViewDelegate() {
 
     private Drawable mCardBackground;
@@ -442,6 +1251,11 @@ public class CardView extends FrameLayout {
     @Override
     public void setShadowPadding(int left, int top, int right, int bottom) {
       mShadowBounds.set(left, top, right, bottom);
+      mSkeletonPathDirty = true;
+      if (mClipChildrenToCorners) {
+        mCornerClipPathDirty = true;
+        invalidateOutline();
+      }
       CardView.super.setPadding(
         left + mContentPadding.left,
         top + mContentPadding.top,
@@ -452,6 +1266,7 @@ public class CardView extends FrameLayout {
 
     @Override
     public void setMinWidthHeightInternal(int width, int height) {
+      invalidateMeasureCache();
       if (width > mUserSetMinWidth) {
         CardView.super.setMinimumWidth(width);
       }
@@ -464,5 +1279,10 @@ public class CardView extends FrameLayout {
     public Drawable getCardBackground() {
       return mCardBackground;
     }
+
+    @Override
+    public View getCardView() {
+      return CardView.this;
+    }
   };
 }
@@ -0,0 +1,81 @@
+package easy.peasy.cardview.widget;
+
+import android.content.Context;
+import android.os.Build;
+import android.view.View;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.RequiresApi;
+
+/**
+ * CardView implementation backed by the platform elevation.
+ * <p>
+ * The shadow is rendered by the platform from the card outline instead of
+ * {@link RoundRectDrawableWithShadow}, which only draws the card. Padding and minimum size are
+ * computed by the drawable the same way as {@link CardViewBaseImpl}, so the content area does not
+ * change between the implementations. Shadow colors are applied from Pie onwards.
+ */
+@RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+class CardViewApi21Impl extends CardViewBaseImpl {
+
+  @Override
+  public void initialize(CardViewDelegate cardView, Context context, CardViewSpec spec) {
+    super.initialize(cardView, context, spec);
+    getShadowBackground(cardView).setShadowEnabled(false);
+    View view = cardView.getCardView();
+    view.setOutlineProvider(new CardViewOutlineProvider(cardView));
+    updateElevation(cardView);
+    updateShadowColors(cardView);
+  }
+
+  @Override
+  public void setCornerRadii(CardViewDelegate cardView, float[] radii) {
+    super.setCornerRadii(cardView, radii);
+    cardView.getCardView().invalidateOutline();
+  }
+
+  @Override
+  public void setShadowAllSides(CardViewDelegate cardView, boolean allSides) {
+    super.setShadowAllSides(cardView, allSides);
+    // the outline follows the card drawable, which moves with the padding
+    cardView.getCardView().invalidateOutline();
+  }
+
+  @Override
+  public void setElevation(CardViewDelegate cardView, float elevation) {
+    super.setElevation(cardView, elevation);
+    updateElevation(cardView);
+  }
+
+  @Override
+  public void setMaxElevation(CardViewDelegate cardView, float maxElevation) {
+    super.setMaxElevation(cardView, maxElevation);
+    updateElevation(cardView);
+    cardView.getCardView().invalidateOutline();
+  }
+
+  @Override
+  public void setShadowStartColor(CardViewDelegate cardView, @ColorInt int color) {
+    super.setShadowStartColor(cardView, color);
+    updateShadowColors(cardView);
+  }
+
+  @Override
+  public void setShadowEndColor(CardViewDelegate cardView, @ColorInt int color) {
+    super.setShadowEndColor(cardView, color);
+    updateShadowColors(cardView);
+  }
+
+  private void updateElevation(CardViewDelegate cardView) {
+    // the drawable clamps the elevation by the max elevation
+    cardView.getCardView().setElevation(getShadowBackground(cardView).getShadowSize());
+  }
+
+  private void updateShadowColors(CardViewDelegate cardView) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+      View view = cardView.getCardView();
+      view.setOutlineSpotShadowColor(getShadowBackground(cardView).getShadowStartColor());
+      view.setOutlineAmbientShadowColor(getShadowBackground(cardView).getShadowEndColor());
+    }
+  }
+}
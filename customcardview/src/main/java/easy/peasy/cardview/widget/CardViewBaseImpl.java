@@ -17,7 +17,9 @@ package easy.peasy.cardview.widget;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
+import android.graphics.Color;
 import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.Nullable;
@@ -45,17 +47,22 @@ class CardViewBaseImpl implements CardViewImpl {
   }
 
   @Override
-  public void initialize(CardViewDelegate cardView, Context context, ColorStateList backgroundColor, CornerRadius cornerRadius, float elevation, float maxElevation, int shadowStartColor, int shadowEndColor) {
-    RoundRectDrawableWithShadow background = new RoundRectDrawableWithShadow(context.getResources(), backgroundColor, cornerRadius, elevation, maxElevation, shadowStartColor, shadowEndColor);
+  public void initialize(CardViewDelegate cardView, Context context, CardViewSpec spec) {
+    RoundRectDrawableWithShadow background = new RoundRectDrawableWithShadow(ColorStateList.valueOf(Color.WHITE), spec.mCornerRadius, spec.mElevation, spec.mMaxElevation, spec.mShadowStartColor, spec.mShadowEndColor, spec.mInsetShadow);
     background.setAddPaddingForCorners();
+    background.setShadowRenderMode(spec.mShadowRenderMode);
+    background.setAsyncShadowRendering(spec.mAsyncShadowRendering);
+    background.setShadowAllSides(spec.mShadowAllSides);
     cardView.setCardBackground(background);
     updatePadding(cardView);
   }
 
   @Override
   public void updatePadding(CardViewDelegate cardView) {
-    Rect shadowPadding = new Rect();
-    getShadowBackground(cardView).getMaxShadowAndCornerPadding(shadowPadding);
+    if (getShadowBackground(cardView).deferPaddingUpdate()) {
+      return;
+    }
+    Rect shadowPadding = getShadowBackground(cardView).getMaxShadowAndCornerPadding();
     cardView.setMinWidthHeightInternal(
       (int) Math.ceil(getMinWidth(cardView)),
       (int) Math.ceil(getMinHeight(cardView))
@@ -68,6 +75,18 @@ class CardViewBaseImpl implements CardViewImpl {
     );
   }
 
+  @Override
+  public void beginBatch(CardViewDelegate cardView) {
+    getShadowBackground(cardView).beginBatch();
+  }
+
+  @Override
+  public void endBatch(CardViewDelegate cardView) {
+    if (getShadowBackground(cardView).endBatch()) {
+      updatePadding(cardView);
+    }
+  }
+
   @Override
   public void setBackgroundColor(CardViewDelegate cardView, @Nullable ColorStateList color) {
     getShadowBackground(cardView).setColor(color);
@@ -80,8 +99,14 @@ class CardViewBaseImpl implements CardViewImpl {
 
   @Override
   public void setCornerRadii(CardViewDelegate cardView, float[] radii) {
-    getShadowBackground(cardView).setCornerRadii(radii);
-    updatePadding(cardView);
+    RoundRectDrawableWithShadow background = getShadowBackground(cardView);
+    final int minWidth = (int) Math.ceil(background.getMinWidth());
+    final int minHeight = (int) Math.ceil(background.getMinHeight());
+    // the padding does not depend on the radii, so only a change of the minimum size needs a layout
+    if (background.setCornerRadii(radii)
+      && (minWidth != (int) Math.ceil(background.getMinWidth()) || minHeight != (int) Math.ceil(background.getMinHeight()))) {
+      updatePadding(cardView);
+    }
   }
 
   @Override
@@ -89,6 +114,11 @@ class CardViewBaseImpl implements CardViewImpl {
     return getShadowBackground(cardView).getCornerRadii();
   }
 
+  @Override
+  public CornerRadius getCornerRadius(CardViewDelegate cardView) {
+    return getShadowBackground(cardView).getCornerRadius();
+  }
+
   @Override
   public void setElevation(CardViewDelegate cardView, float elevation) {
     getShadowBackground(cardView).setShadowSize(elevation);
@@ -99,6 +129,26 @@ class CardViewBaseImpl implements CardViewImpl {
     return getShadowBackground(cardView).getShadowSize();
   }
 
+  @Override
+  public void startElevationAnimation(CardViewDelegate cardView, float fromElevation, float toElevation) {
+    getShadowBackground(cardView).startShadowAnimation(fromElevation, toElevation);
+  }
+
+  @Override
+  public void endElevationAnimation(CardViewDelegate cardView) {
+    getShadowBackground(cardView).endShadowAnimation();
+  }
+
+  @Override
+  public void startRadiiAnimation(CardViewDelegate cardView, float[] startRadii, float[] endRadii) {
+    getShadowBackground(cardView).startRadiiAnimation(startRadii, endRadii);
+  }
+
+  @Override
+  public void endRadiiAnimation(CardViewDelegate cardView) {
+    getShadowBackground(cardView).endRadiiAnimation();
+  }
+
   @Override
   public void setMaxElevation(CardViewDelegate cardView, float maxElevation) {
     getShadowBackground(cardView).setMaxShadowSize(maxElevation);
@@ -132,6 +182,43 @@ class CardViewBaseImpl implements CardViewImpl {
     return getShadowBackground(cardView).getShadowEndColor();
   }
 
+  @Override
+  public void setCardDrawable(CardViewDelegate cardView, Drawable drawable) {
+    getShadowBackground(cardView).setCardDrawable(drawable);
+  }
+
+  @Override
+  public void setShadowRenderMode(CardViewDelegate cardView, @CardView.ShadowRenderMode int mode) {
+    getShadowBackground(cardView).setShadowRenderMode(mode);
+  }
+
+  @Override
+  @CardView.ShadowRenderMode
+  public int getShadowRenderMode(CardViewDelegate cardView) {
+    return getShadowBackground(cardView).getShadowRenderMode();
+  }
+
+  @Override
+  public void setAsyncShadowRendering(CardViewDelegate cardView, boolean async) {
+    getShadowBackground(cardView).setAsyncShadowRendering(async);
+  }
+
+  @Override
+  public boolean isAsyncShadowRendering(CardViewDelegate cardView) {
+    return getShadowBackground(cardView).isAsyncShadowRendering();
+  }
+
+  @Override
+  public void setShadowAllSides(CardViewDelegate cardView, boolean allSides) {
+    getShadowBackground(cardView).setShadowAllSides(allSides);
+    updatePadding(cardView);
+  }
+
+  @Override
+  public boolean isShadowAllSides(CardViewDelegate cardView) {
+    return getShadowBackground(cardView).isShadowAllSides();
+  }
+
   @Override
   public float getMinWidth(CardViewDelegate cardView) {
     return getShadowBackground(cardView).getMinWidth();
@@ -142,7 +229,7 @@ class CardViewBaseImpl implements CardViewImpl {
     return getShadowBackground(cardView).getMinHeight();
   }
 
-  private RoundRectDrawableWithShadow getShadowBackground(CardViewDelegate cardView) {
+  RoundRectDrawableWithShadow getShadowBackground(CardViewDelegate cardView) {
     return ((RoundRectDrawableWithShadow) cardView.getCardBackground());
   }
 }
@@ -16,6 +16,7 @@
 package easy.peasy.cardview.widget;
 
 import android.graphics.drawable.Drawable;
+import android.view.View;
 
 /**
  * Interface provided by CardView to implementations.
@@ -27,4 +28,5 @@ interface CardViewDelegate {
   Drawable getCardBackground();
   void setShadowPadding(int left, int top, int right, int bottom);
   void setMinWidthHeightInternal(int width, int height);
+  View getCardView();
 }
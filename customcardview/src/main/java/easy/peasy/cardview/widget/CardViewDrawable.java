@@ -3,35 +3,110 @@ package easy.peasy.cardview.widget;
 import android.content.res.ColorStateList;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
-import android.graphics.drawable.PaintDrawable;
 import android.graphics.drawable.RippleDrawable;
+import android.util.LruCache;
 
+import androidx.annotation.Nullable;
+
+/**
+ * The background and ripple of a card.
+ * <p>
+ * Cards with the same colors and radii share the constant state of their drawables, so identical
+ * cards hold one drawable graph instead of one each. The drawable has to be mutated with
+ * {@link Drawable#mutate()} before its colors or radii are changed.
+ */
 class CardViewDrawable {
 
+  private static final int MAX_SHARED_STATES = 32;
+
+  private static final LruCache<Key, Drawable.ConstantState> sStates = new LruCache<>(MAX_SHARED_STATES);
+
   CardViewDrawable(int startColor, int endColor, CornerRadius cornerRadius, int rippleColor) {
-    GradientDrawable drawable = new GradientDrawable(
-      GradientDrawable.Orientation.LEFT_RIGHT,
-      new int[]{startColor, endColor}
-    );
-    drawable.setCornerRadii(cornerRadius.getRadii());
+    Key key = new Key(true, startColor, endColor, cornerRadius, rippleColor);
+    Drawable.ConstantState state = sStates.get(key);
+    if (state == null) {
+      GradientDrawable drawable = new GradientDrawable(
+        GradientDrawable.Orientation.LEFT_RIGHT,
+        new int[]{startColor, endColor}
+      );
+      drawable.setCornerRadii(cornerRadius.getRadii());
 
-    setRippleEffect(drawable, rippleColor);
+      state = setRippleEffect(key, drawable, rippleColor);
+    }
+    this.drawable = state.newDrawable();
   }
 
   CardViewDrawable(int color, CornerRadius cornerRadius, int rippleColor) {
-    PaintDrawable drawable = new PaintDrawable(color);
-    drawable.setCornerRadii(cornerRadius.getRadii());
+    Key key = new Key(false, color, color, cornerRadius, rippleColor);
+    Drawable.ConstantState state = sStates.get(key);
+    if (state == null) {
+      // unlike PaintDrawable, the shape of GradientDrawable is not part of its shared state, so
+      // cards of different sizes can share it
+      GradientDrawable drawable = new GradientDrawable();
+      drawable.setColor(color);
+      drawable.setCornerRadii(cornerRadius.getRadii());
 
-    setRippleEffect(drawable, rippleColor);
+      state = setRippleEffect(key, drawable, rippleColor);
+    }
+    this.drawable = state.newDrawable();
   }
 
-  private void setRippleEffect(Drawable drawable, int rippleColor) {
-    this.drawable =  new RippleDrawable(ColorStateList.valueOf(rippleColor), drawable, null);
+  private static Drawable.ConstantState setRippleEffect(Key key, Drawable drawable, int rippleColor) {
+    Drawable.ConstantState state = new RippleDrawable(ColorStateList.valueOf(rippleColor), drawable, null).getConstantState();
+    sStates.put(key, state);
+    return state;
   }
 
-  private Drawable drawable;
+  private final Drawable drawable;
 
   public Drawable getDrawable() {
     return drawable;
   }
+
+  private static final class Key {
+
+    final boolean mGradient;
+
+    final int mStartColor;
+
+    final int mEndColor;
+
+    final CornerRadius mCornerRadius;
+
+    final int mRippleColor;
+
+    Key(boolean gradient, int startColor, int endColor, CornerRadius cornerRadius, int rippleColor) {
+      mGradient = gradient;
+      mStartColor = startColor;
+      mEndColor = endColor;
+      mCornerRadius = cornerRadius;
+      mRippleColor = rippleColor;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (this == obj) {
+        return true;
+      } else if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      // radii are interned
+      return mGradient == other.mGradient
+        && mStartColor == other.mStartColor
+        && mEndColor == other.mEndColor
+        && mCornerRadius == other.mCornerRadius
+        && mRippleColor == other.mRippleColor;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = mGradient ? 1 : 0;
+      result = 31 * result + mStartColor;
+      result = 31 * result + mEndColor;
+      result = 31 * result + mCornerRadius.hashCode();
+      result = 31 * result + mRippleColor;
+      return result;
+    }
+  }
 }
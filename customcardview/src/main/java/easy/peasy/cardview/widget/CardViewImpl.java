@@ -17,6 +17,7 @@ package easy.peasy.cardview.widget;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
+import android.graphics.drawable.Drawable;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.Nullable;
@@ -26,16 +27,26 @@ import androidx.annotation.Nullable;
  */
 interface CardViewImpl {
 
-  void initialize(CardViewDelegate cardView, Context context, ColorStateList backgroundColor, CornerRadius cornerRadius, float elevation, float maxElevation, int shadowStartColor, int shadowEndColor);
+  void initialize(CardViewDelegate cardView, Context context, CardViewSpec spec);
 
   void setCornerRadii(CardViewDelegate cardView, float[] radii);
 
   float[] getCornerRadii(CardViewDelegate cardView);
 
+  CornerRadius getCornerRadius(CardViewDelegate cardView);
+
   void setElevation(CardViewDelegate cardView, float elevation);
 
   float getElevation(CardViewDelegate cardView);
 
+  void startElevationAnimation(CardViewDelegate cardView, float fromElevation, float toElevation);
+
+  void endElevationAnimation(CardViewDelegate cardView);
+
+  void startRadiiAnimation(CardViewDelegate cardView, float[] startRadii, float[] endRadii);
+
+  void endRadiiAnimation(CardViewDelegate cardView);
+
   void initStatic();
 
   void setMaxElevation(CardViewDelegate cardView, float maxElevation);
@@ -58,7 +69,29 @@ interface CardViewImpl {
 
   void updatePadding(CardViewDelegate cardView);
 
+  /**
+   * Defers padding updates and invalidations until the matching {@link #endBatch(CardViewDelegate)}.
+   */
+  void beginBatch(CardViewDelegate cardView);
+
+  void endBatch(CardViewDelegate cardView);
+
   void setBackgroundColor(CardViewDelegate cardView, @Nullable ColorStateList color);
 
   ColorStateList getBackgroundColor(CardViewDelegate cardView);
+
+  void setCardDrawable(CardViewDelegate cardView, Drawable drawable);
+
+  void setShadowRenderMode(CardViewDelegate cardView, @CardView.ShadowRenderMode int mode);
+
+  @CardView.ShadowRenderMode
+  int getShadowRenderMode(CardViewDelegate cardView);
+
+  void setAsyncShadowRendering(CardViewDelegate cardView, boolean async);
+
+  boolean isAsyncShadowRendering(CardViewDelegate cardView);
+
+  void setShadowAllSides(CardViewDelegate cardView, boolean allSides);
+
+  boolean isShadowAllSides(CardViewDelegate cardView);
 }
@@ -0,0 +1,31 @@
+package easy.peasy.cardview.widget;
+
+/**
+ * Receives metrics of all card views, set with {@link CardView#setMetrics(CardViewMetrics)}.
+ * <p>
+ * Every call reports one event with its duration in nanoseconds, so a listener can keep counts
+ * and totals or forward single events to a telemetry. Calls are made on the thread the event
+ * happens on, usually the main thread, and should return quickly.
+ */
+public interface CardViewMetrics {
+
+  /**
+   * A card view was constructed, including its attribute parsing.
+   */
+  void onInflate(long durationNanos);
+
+  /**
+   * A card view was measured.
+   */
+  void onMeasure(long durationNanos);
+
+  /**
+   * The shadow of a card was rebuilt.
+   */
+  void onShadowBuild(long durationNanos);
+
+  /**
+   * The shadow of a card was drawn.
+   */
+  void onShadowDraw(long durationNanos);
+}
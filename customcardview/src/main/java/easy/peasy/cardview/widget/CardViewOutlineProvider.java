@@ -0,0 +1,53 @@
+package easy.peasy.cardview.widget;
+
+import android.graphics.Outline;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewOutlineProvider;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Outline of the card body built from its {@link CornerRadius}.
+ * <p>
+ * Uniform radii use a round rect outline, per-corner radii use a path outline.
+ */
+@RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+class CardViewOutlineProvider extends ViewOutlineProvider {
+
+  private final CardViewDelegate mCardViewDelegate;
+
+  private final Rect mCardBounds = new Rect();
+
+  private final RectF mCardBoundsF = new RectF();
+
+  private final Path mPath = new Path();
+
+  CardViewOutlineProvider(CardViewDelegate cardView) {
+    mCardViewDelegate = cardView;
+  }
+
+  @Override
+  public void getOutline(View view, Outline outline) {
+    RoundRectDrawableWithShadow background = (RoundRectDrawableWithShadow) mCardViewDelegate.getCardBackground();
+    // the card itself, without the area reserved for the shadow
+    background.getPadding(mCardBounds);
+    mCardBounds.set(mCardBounds.left, mCardBounds.top, view.getWidth() - mCardBounds.right, view.getHeight() - mCardBounds.bottom);
+    CornerRadius cornerRadius = background.getCornerRadius();
+    if (cornerRadius.isUniform()) {
+      outline.setRoundRect(mCardBounds, cornerRadius.getTopLeft());
+      return;
+    }
+    mCardBoundsF.set(mCardBounds);
+    mPath.reset();
+    mPath.addRoundRect(mCardBoundsF, cornerRadius.getRadii(), Path.Direction.CW);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+      outline.setPath(mPath);
+    } else {
+      outline.setConvexPath(mPath);
+    }
+  }
+}
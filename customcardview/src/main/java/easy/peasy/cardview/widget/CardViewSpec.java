@@ -0,0 +1,398 @@
+package easy.peasy.cardview.widget;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.RippleDrawable;
+
+import androidx.annotation.AttrRes;
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Px;
+import androidx.annotation.StyleRes;
+import easy.peasy.cardview.R;
+
+/**
+ * Immutable set of the values a {@link CardView} is created with.
+ * <p>
+ * Every value is resolved when the spec is built, so creating cards with
+ * {@link CardView#CardView(Context, CardViewSpec)} needs no attribute or resource lookup. Resolve a
+ * spec once, e.g. with {@link #fromStyle(Context, int, int)}, and reuse it for every card of the
+ * same style.
+ */
+public final class CardViewSpec {
+
+  private static final int[] COLOR_RIPPLE_ATTR = {android.R.attr.colorControlHighlight};
+
+  private static final int BACKGROUND_DEFAULT = 0;
+  private static final int BACKGROUND_COLOR = 1;
+  private static final int BACKGROUND_GRADIENT = 2;
+
+  final CornerRadius mCornerRadius;
+  final float mElevation;
+  final float mMaxElevation;
+  final int mContentPaddingLeft, mContentPaddingTop, mContentPaddingRight, mContentPaddingBottom;
+  final int mMinWidth, mMinHeight;
+  final int mBackgroundMode;
+  final int mBackgroundColor;
+  final int mBackgroundStartColor, mBackgroundEndColor;
+  final int mShadowStartColor, mShadowEndColor;
+  final int mInsetShadow;
+  final int mRippleColor;
+  @CardView.ShadowRenderMode
+  final int mShadowRenderMode;
+  @CardView.ShadowImplementation
+  final int mShadowImplementation;
+  final boolean mAsyncShadowRendering;
+  final boolean mShadowAllSides;
+  final boolean mClipChildrenToCorners;
+  final boolean mSkeleton;
+
+  private CardViewSpec(Builder builder) {
+    mCornerRadius = CornerRadius.build(builder.mRadius, builder.mRadiusTopLeft, builder.mRadiusTopRight, builder.mRadiusBottomRight, builder.mRadiusBottomLeft);
+    mElevation = builder.mElevation;
+    // the shadow never exceeds the max elevation, so it is at least the elevation
+    mMaxElevation = Math.max(builder.mElevation, builder.mMaxElevation);
+    mContentPaddingLeft = builder.mContentPaddingLeft;
+    mContentPaddingTop = builder.mContentPaddingTop;
+    mContentPaddingRight = builder.mContentPaddingRight;
+    mContentPaddingBottom = builder.mContentPaddingBottom;
+    mMinWidth = builder.mMinWidth;
+    mMinHeight = builder.mMinHeight;
+    mBackgroundMode = builder.mBackgroundMode;
+    mBackgroundColor = builder.mBackgroundColor;
+    mBackgroundStartColor = builder.mBackgroundStartColor;
+    mBackgroundEndColor = builder.mBackgroundEndColor;
+    mShadowStartColor = builder.mShadowStartColor;
+    mShadowEndColor = builder.mShadowEndColor;
+    mInsetShadow = builder.mInsetShadow;
+    mRippleColor = builder.mRippleColor;
+    mShadowRenderMode = builder.mShadowRenderMode;
+    mShadowImplementation = builder.mShadowImplementation;
+    mAsyncShadowRendering = builder.mAsyncShadowRendering;
+    mShadowAllSides = builder.mShadowAllSides;
+    mClipChildrenToCorners = builder.mClipChildrenToCorners;
+    mSkeleton = builder.mSkeleton;
+  }
+
+  /**
+   * Resolves a spec from a style, the same way the attributes of a card inflated from XML are
+   * resolved.
+   *
+   * @param context      The context whose theme resolves the style
+   * @param defStyleAttr An attribute of the theme referring to the style, e.g.
+   *                     {@link R.attr#cardViewStyle}, or 0
+   * @param defStyleRes  The style used when the theme does not define defStyleAttr, e.g.
+   *                     {@link R.style#CardView}, or 0
+   */
+  @NonNull
+  public static CardViewSpec fromStyle(@NonNull Context context, @AttrRes int defStyleAttr, @StyleRes int defStyleRes) {
+    TypedArray a = context.obtainStyledAttributes(null, R.styleable.CardView, defStyleAttr, defStyleRes);
+    try {
+      return fromTypedArray(context, a);
+    } finally {
+      a.recycle();
+    }
+  }
+
+  static CardViewSpec fromTypedArray(Context context, TypedArray a) {
+    final Resources resources = context.getResources();
+    int shadowStartColor = a.getColor(R.styleable.CardView_cardShadowStartColor, 0);
+    if (shadowStartColor == 0) {
+      shadowStartColor = resources.getColor(R.color.cardview_shadow_start_color);
+    }
+    int shadowEndColor = a.getColor(R.styleable.CardView_cardShadowEndColor, 0);
+    if (shadowEndColor == 0) {
+      shadowEndColor = resources.getColor(R.color.cardview_shadow_end_color);
+    }
+    int rippleColor = a.getColor(R.styleable.CardView_rippleColor, 0);
+    if (rippleColor == 0) {
+      rippleColor = resolveRippleColor(context);
+    }
+    Builder builder = new Builder(shadowStartColor, shadowEndColor, resources.getDimensionPixelSize(R.dimen.cardview_compat_inset_shadow), rippleColor);
+
+    builder.mRadius = a.getDimension(R.styleable.CardView_cardCornerRadius, 0);
+    builder.mRadiusTopLeft = a.getDimension(R.styleable.CardView_cardCornerRadiusTopLeft, 0);
+    builder.mRadiusTopRight = a.getDimension(R.styleable.CardView_cardCornerRadiusTopRight, 0);
+    builder.mRadiusBottomRight = a.getDimension(R.styleable.CardView_cardCornerRadiusBottomRight, 0);
+    builder.mRadiusBottomLeft = a.getDimension(R.styleable.CardView_cardCornerRadiusBottomLeft, 0);
+    builder.mElevation = a.getDimension(R.styleable.CardView_cardElevation, 0);
+    builder.mMaxElevation = a.getDimension(R.styleable.CardView_cardMaxElevation, 0);
+    int defaultPadding = a.getDimensionPixelSize(R.styleable.CardView_contentPadding, 0);
+    builder.mContentPaddingLeft = a.getDimensionPixelSize(R.styleable.CardView_contentPaddingLeft, defaultPadding);
+    builder.mContentPaddingTop = a.getDimensionPixelSize(R.styleable.CardView_contentPaddingTop, defaultPadding);
+    builder.mContentPaddingRight = a.getDimensionPixelSize(R.styleable.CardView_contentPaddingRight, defaultPadding);
+    builder.mContentPaddingBottom = a.getDimensionPixelSize(R.styleable.CardView_contentPaddingBottom, defaultPadding);
+    builder.mMinWidth = a.getDimensionPixelSize(R.styleable.CardView_android_minWidth, 0);
+    builder.mMinHeight = a.getDimensionPixelSize(R.styleable.CardView_android_minHeight, 0);
+    builder.mShadowRenderMode = a.getInt(R.styleable.CardView_cardShadowRenderMode, CardView.SHADOW_RENDER_MODE_ATLAS);
+    builder.mShadowImplementation = a.getInt(R.styleable.CardView_cardShadowImplementation, CardView.SHADOW_IMPLEMENTATION_AUTO);
+    builder.mAsyncShadowRendering = a.getBoolean(R.styleable.CardView_cardAsyncShadowRendering, false);
+    builder.mShadowAllSides = a.getBoolean(R.styleable.CardView_cardShadowAllSides, false);
+    builder.mClipChildrenToCorners = a.getBoolean(R.styleable.CardView_cardClipChildrenToCorners, false);
+    builder.mSkeleton = a.getBoolean(R.styleable.CardView_cardSkeleton, false);
+    if (a.hasValue(R.styleable.CardView_cardBackgroundStartColor) && a.hasValue(R.styleable.CardView_cardBackgroundEndColor)) {
+      builder.setCardBackgroundGradient(
+        a.getColor(R.styleable.CardView_cardBackgroundStartColor, 0),
+        a.getColor(R.styleable.CardView_cardBackgroundEndColor, 0)
+      );
+    } else if (a.hasValue(R.styleable.CardView_cardBackgroundColor)) {
+      builder.setCardBackgroundColor(a.getColor(R.styleable.CardView_cardBackgroundColor, 0));
+    }
+    return builder.build();
+  }
+
+  private static int resolveRippleColor(Context context) {
+    final TypedArray a = context.obtainStyledAttributes(COLOR_RIPPLE_ATTR);
+    final int rippleColor = a.getColor(0, 0);
+    a.recycle();
+    return rippleColor;
+  }
+
+  /**
+   * Creates the drawable of the card itself, its background and ripple.
+   */
+  Drawable createCardDrawable() {
+    switch (mBackgroundMode) {
+      case BACKGROUND_GRADIENT:
+        return new CardViewDrawable(mBackgroundStartColor, mBackgroundEndColor, mCornerRadius, mRippleColor).getDrawable();
+      case BACKGROUND_COLOR:
+        return new CardViewDrawable(mBackgroundColor, mCornerRadius, mRippleColor).getDrawable();
+      default:
+        return new RippleDrawable(ColorStateList.valueOf(mRippleColor), new ColorDrawable(Color.WHITE), null);
+    }
+  }
+
+  public float getElevation() {
+    return mElevation;
+  }
+
+  public float getMaxElevation() {
+    return mMaxElevation;
+  }
+
+  /**
+   * Returns the radii of the corners, ordered top-left, top-right, bottom-right, bottom-left.
+   */
+  public float[] getCornerRadii() {
+    return mCornerRadius.getCornerRadii();
+  }
+
+  @ColorInt
+  public int getShadowStartColor() {
+    return mShadowStartColor;
+  }
+
+  @ColorInt
+  public int getShadowEndColor() {
+    return mShadowEndColor;
+  }
+
+  @ColorInt
+  public int getRippleColor() {
+    return mRippleColor;
+  }
+
+  public static final class Builder {
+
+    private float mRadius;
+    private float mRadiusTopLeft, mRadiusTopRight, mRadiusBottomRight, mRadiusBottomLeft;
+    private float mElevation;
+    private float mMaxElevation;
+    private int mContentPaddingLeft, mContentPaddingTop, mContentPaddingRight, mContentPaddingBottom;
+    private int mMinWidth, mMinHeight;
+    private int mBackgroundMode = BACKGROUND_DEFAULT;
+    private int mBackgroundColor;
+    private int mBackgroundStartColor, mBackgroundEndColor;
+    private int mShadowStartColor, mShadowEndColor;
+    private final int mInsetShadow;
+    private int mRippleColor;
+    @CardView.ShadowRenderMode
+    private int mShadowRenderMode = CardView.SHADOW_RENDER_MODE_ATLAS;
+    @CardView.ShadowImplementation
+    private int mShadowImplementation = CardView.SHADOW_IMPLEMENTATION_AUTO;
+    private boolean mAsyncShadowRendering;
+    private boolean mShadowAllSides;
+    private boolean mClipChildrenToCorners;
+    private boolean mSkeleton;
+
+    /**
+     * Creates a builder with the default shadow colors and the ripple color of the theme.
+     */
+    public Builder(@NonNull Context context) {
+      this(
+        context.getResources().getColor(R.color.cardview_shadow_start_color),
+        context.getResources().getColor(R.color.cardview_shadow_end_color),
+        context.getResources().getDimensionPixelSize(R.dimen.cardview_compat_inset_shadow),
+        resolveRippleColor(context)
+      );
+    }
+
+    /**
+     * Creates a builder with the values of the spec.
+     */
+    public Builder(@NonNull CardViewSpec spec) {
+      mRadiusTopLeft = spec.mCornerRadius.getTopLeft();
+      mRadiusTopRight = spec.mCornerRadius.getTopRight();
+      mRadiusBottomRight = spec.mCornerRadius.getBottomRight();
+      mRadiusBottomLeft = spec.mCornerRadius.getBottomLeft();
+      mElevation = spec.mElevation;
+      mMaxElevation = spec.mMaxElevation;
+      mContentPaddingLeft = spec.mContentPaddingLeft;
+      mContentPaddingTop = spec.mContentPaddingTop;
+      mContentPaddingRight = spec.mContentPaddingRight;
+      mContentPaddingBottom = spec.mContentPaddingBottom;
+      mMinWidth = spec.mMinWidth;
+      mMinHeight = spec.mMinHeight;
+      mBackgroundMode = spec.mBackgroundMode;
+      mBackgroundColor = spec.mBackgroundColor;
+      mBackgroundStartColor = spec.mBackgroundStartColor;
+      mBackgroundEndColor = spec.mBackgroundEndColor;
+      mShadowStartColor = spec.mShadowStartColor;
+      mShadowEndColor = spec.mShadowEndColor;
+      mInsetShadow = spec.mInsetShadow;
+      mRippleColor = spec.mRippleColor;
+      mShadowRenderMode = spec.mShadowRenderMode;
+      mShadowImplementation = spec.mShadowImplementation;
+      mAsyncShadowRendering = spec.mAsyncShadowRendering;
+      mShadowAllSides = spec.mShadowAllSides;
+      mClipChildrenToCorners = spec.mClipChildrenToCorners;
+      mSkeleton = spec.mSkeleton;
+    }
+
+    Builder(int shadowStartColor, int shadowEndColor, int insetShadow, int rippleColor) {
+      mShadowStartColor = shadowStartColor;
+      mShadowEndColor = shadowEndColor;
+      mInsetShadow = insetShadow;
+      mRippleColor = rippleColor;
+    }
+
+    /**
+     * Sets the same radius to all corners.
+     */
+    @NonNull
+    public Builder setRadius(float radius) {
+      return setRadii(radius, radius, radius, radius);
+    }
+
+    @NonNull
+    public Builder setRadii(float topLeft, float topRight, float bottomRight, float bottomLeft) {
+      mRadius = 0;
+      mRadiusTopLeft = topLeft;
+      mRadiusTopRight = topRight;
+      mRadiusBottomRight = bottomRight;
+      mRadiusBottomLeft = bottomLeft;
+      return this;
+    }
+
+    @NonNull
+    public Builder setCardElevation(float elevation) {
+      mElevation = elevation;
+      return this;
+    }
+
+    /**
+     * Sets the maximum elevation, it is raised to the elevation if it is lower.
+     */
+    @NonNull
+    public Builder setMaxCardElevation(float maxElevation) {
+      mMaxElevation = maxElevation;
+      return this;
+    }
+
+    @NonNull
+    public Builder setContentPadding(@Px int left, @Px int top, @Px int right, @Px int bottom) {
+      mContentPaddingLeft = left;
+      mContentPaddingTop = top;
+      mContentPaddingRight = right;
+      mContentPaddingBottom = bottom;
+      return this;
+    }
+
+    @NonNull
+    public Builder setMinimumSize(@Px int minWidth, @Px int minHeight) {
+      mMinWidth = minWidth;
+      mMinHeight = minHeight;
+      return this;
+    }
+
+    @NonNull
+    public Builder setCardBackgroundColor(@ColorInt int color) {
+      mBackgroundMode = BACKGROUND_COLOR;
+      mBackgroundColor = color;
+      return this;
+    }
+
+    /**
+     * Sets a background with a gradient from left to right.
+     */
+    @NonNull
+    public Builder setCardBackgroundGradient(@ColorInt int startColor, @ColorInt int endColor) {
+      mBackgroundMode = BACKGROUND_GRADIENT;
+      mBackgroundStartColor = startColor;
+      mBackgroundEndColor = endColor;
+      return this;
+    }
+
+    @NonNull
+    public Builder setShadowColors(@ColorInt int startColor, @ColorInt int endColor) {
+      mShadowStartColor = startColor;
+      mShadowEndColor = endColor;
+      return this;
+    }
+
+    @NonNull
+    public Builder setRippleColor(@ColorInt int color) {
+      mRippleColor = color;
+      return this;
+    }
+
+    @NonNull
+    public Builder setShadowRenderMode(@CardView.ShadowRenderMode int mode) {
+      mShadowRenderMode = mode;
+      return this;
+    }
+
+    @NonNull
+    public Builder setShadowImplementation(@CardView.ShadowImplementation int implementation) {
+      mShadowImplementation = implementation;
+      return this;
+    }
+
+    @NonNull
+    public Builder setAsyncShadowRendering(boolean async) {
+      mAsyncShadowRendering = async;
+      return this;
+    }
+
+    @NonNull
+    public Builder setShadowAllSides(boolean allSides) {
+      mShadowAllSides = allSides;
+      return this;
+    }
+
+    @NonNull
+    public Builder setClipChildrenToCorners(boolean clip) {
+      mClipChildrenToCorners = clip;
+      return this;
+    }
+
+    @NonNull
+    public Builder setSkeleton(boolean skeleton) {
+      mSkeleton = skeleton;
+      return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a radius is negative
+     */
+    @NonNull
+    public CardViewSpec build() {
+      return new CardViewSpec(this);
+    }
+  }
+}
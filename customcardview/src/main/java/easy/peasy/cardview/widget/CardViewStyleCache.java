@@ -0,0 +1,172 @@
+package easy.peasy.cardview.widget;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.util.AttributeSet;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import easy.peasy.cardview.R;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Cache of the specs resolved for inflated card views.
+ * <p>
+ * A spec is keyed by the theme, the default style and the card attributes written in the layout,
+ * so every card inflated from the same layout element, e.g. one per view holder of a list, shares
+ * one spec and skips attribute parsing. A spec is only used with the configuration it was resolved
+ * with, as dimensions and colors may resolve differently, so contexts of different configurations
+ * inflating in turn keep their own specs.
+ * <p>
+ * Themes are weakly referenced, so the cache does not keep the themes and resources of destroyed
+ * activities alive. Specs of collected themes are never found again and are evicted over time.
+ * <p>
+ * Cards created from a cached spec do not save their attribute data for the layout inspector.
+ */
+final class CardViewStyleCache {
+
+  private static final int MAX_SIZE = 32;
+
+  private static final LruCache<Key, Entry> sCache = new LruCache<>(MAX_SIZE);
+
+  private CardViewStyleCache() {
+  }
+
+  /**
+   * Returns the key of the card attributes. Cards may be inflated on any thread.
+   */
+  static Key obtainKey(Context context, @Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+    int styleAttribute = 0;
+    int[] names = null;
+    String[] values = null;
+    if (attrs != null) {
+      styleAttribute = attrs.getStyleAttribute();
+      final int count = attrs.getAttributeCount();
+      names = new int[count];
+      values = new String[count];
+      int cardCount = 0;
+      for (int i = 0; i < count; i++) {
+        final int name = attrs.getAttributeNameResource(i);
+        if (name != 0 && isCardAttribute(name)) {
+          names[cardCount] = name;
+          values[cardCount] = attrs.getAttributeValue(i);
+          cardCount++;
+        }
+      }
+      names = Arrays.copyOf(names, cardCount);
+      values = Arrays.copyOf(values, cardCount);
+    }
+    return new Key(context.getTheme(), context.getResources().getConfiguration(), defStyleAttr, defStyleRes, styleAttribute, names, values);
+  }
+
+  private static boolean isCardAttribute(int name) {
+    for (int attr : R.styleable.CardView) {
+      if (attr == name) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  static CardViewSpec get(Key key) {
+    final Entry entry = sCache.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (!entry.mConfiguration.equals(key.mConfiguration)) {
+      // the resources of the theme were updated in place
+      sCache.remove(key);
+      return null;
+    }
+    return entry.mSpec;
+  }
+
+  static void put(Key key, CardViewSpec spec) {
+    sCache.put(key, new Entry(spec, new Configuration(key.mConfiguration)));
+  }
+
+  static void clear() {
+    sCache.evictAll();
+  }
+
+  private static final class Entry {
+
+    final CardViewSpec mSpec;
+
+    // a copy, the configuration of the resources may be updated in place
+    final Configuration mConfiguration;
+
+    Entry(CardViewSpec spec, Configuration configuration) {
+      mSpec = spec;
+      mConfiguration = configuration;
+    }
+  }
+
+  static final class Key {
+
+    final WeakReference<Resources.Theme> mTheme;
+
+    // the current configuration of the resources of the theme, not part of the key
+    final Configuration mConfiguration;
+
+    final int mDefStyleAttr;
+
+    final int mDefStyleRes;
+
+    final int mStyleAttribute;
+
+    @Nullable
+    final int[] mNames;
+
+    @Nullable
+    final String[] mValues;
+
+    private final int mHashCode;
+
+    Key(Resources.Theme theme, Configuration configuration, int defStyleAttr, int defStyleRes, int styleAttribute, @Nullable int[] names, @Nullable String[] values) {
+      mTheme = new WeakReference<>(theme);
+      mConfiguration = configuration;
+      mDefStyleAttr = defStyleAttr;
+      mDefStyleRes = defStyleRes;
+      mStyleAttribute = styleAttribute;
+      mNames = names;
+      mValues = values;
+      int result = System.identityHashCode(theme);
+      result = 31 * result + defStyleAttr;
+      result = 31 * result + defStyleRes;
+      result = 31 * result + styleAttribute;
+      result = 31 * result + Arrays.hashCode(names);
+      result = 31 * result + Arrays.hashCode(values);
+      mHashCode = result;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (this == obj) {
+        return true;
+      } else if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      final Resources.Theme theme = mTheme.get();
+      // a collected theme matches no key
+      return mHashCode == other.mHashCode
+        && theme != null
+        && theme == other.mTheme.get()
+        && mDefStyleAttr == other.mDefStyleAttr
+        && mDefStyleRes == other.mDefStyleRes
+        && mStyleAttribute == other.mStyleAttribute
+        && Arrays.equals(mNames, other.mNames)
+        && Arrays.equals(mValues, other.mValues);
+    }
+
+    @Override
+    public int hashCode() {
+      return mHashCode;
+    }
+  }
+}
@@ -2,21 +2,40 @@ package easy.peasy.cardview.widget;
 
 import androidx.annotation.Nullable;
 
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
 
-public class CornerRadius {
+/**
+ * Immutable corner radii of a card.
+ * <p>
+ * Instances are interned, so cards with the same radii share one instance, and derived values are
+ * computed once. This makes it cheap to use as a cache key and to query while drawing.
+ */
+public final class CornerRadius {
 
-  private static final int COUNT_RADII = 4;
+  static final int COUNT_RADII = 4;
 
-  private static final int TOP_LEFT_INDEX = 0;
-  private static final int TOP_RIGHT_INDEX = 1;
-  private static final int BOTTOM_RIGHT_INDEX = 2;
-  private static final int BOTTOM_LEFT_INDEX = 3;
+  static final int TOP_LEFT_INDEX = 0;
+  static final int TOP_RIGHT_INDEX = 1;
+  static final int BOTTOM_RIGHT_INDEX = 2;
+  static final int BOTTOM_LEFT_INDEX = 3;
+
+  private static final Map<CornerRadius, WeakReference<CornerRadius>> sInterned = new WeakHashMap<>();
+
+  /**
+   * Maximum number of whole pixels the radii of an animation pass through, for which the radii of
+   * its frames are obtained ahead.
+   */
+  private static final int MAX_ANIMATION_FRAMES = 256;
+
+  // looks up interned radii without building them, guarded by sInterned
+  private static final CornerRadius sScratch = new CornerRadius(new float[COUNT_RADII]);
 
   static CornerRadius build(float anyRadius,
                             float radiusTopLeft, float radiusTopRight,
                             float radiusBottomRight, float radiusBottomLeft) {
-    CornerRadius cornerRadius = new CornerRadius();
     float[] radii = new float[] {radiusTopLeft, radiusTopRight, radiusBottomRight, radiusBottomLeft};
     float sumRadii = 0;
 
@@ -29,35 +48,149 @@ public class CornerRadius {
     }
 
     if (sumRadii > 0) {
-      cornerRadius.mCornerRadii = radii;
+      return intern(new CornerRadius(radii));
     } else {
-      cornerRadius.mCornerRadii = new float[] {anyRadius, anyRadius, anyRadius, anyRadius};
+      return intern(new CornerRadius(new float[] {anyRadius, anyRadius, anyRadius, anyRadius}));
+    }
+  }
+
+  private static CornerRadius intern(CornerRadius cornerRadius) {
+    synchronized (sInterned) {
+      WeakReference<CornerRadius> reference = sInterned.get(cornerRadius);
+      CornerRadius interned = reference != null ? reference.get() : null;
+      if (interned == null) {
+        sInterned.put(cornerRadius, new WeakReference<>(cornerRadius));
+        interned = cornerRadius;
+      }
+      return interned;
+    }
+  }
+
+  /**
+   * Returns the interned radii of {@code radii} with the offset applied like
+   * {@link #withOffset(float)} does. Only radii which are not interned yet are allocated, so cards
+   * bound with radii in use by other cards allocate nothing.
+   */
+  static CornerRadius obtainWithOffset(float[] radii, float offset) {
+    synchronized (sInterned) {
+      final float[] scratchRadii = sScratch.mCornerRadii;
+      for (int i = 0; i < COUNT_RADII; i++) {
+        scratchRadii[i] = (int) (radii[i] + offset);
+      }
+      sScratch.mHashCode = Arrays.hashCode(scratchRadii);
+      WeakReference<CornerRadius> reference = sInterned.get(sScratch);
+      CornerRadius interned = reference != null ? reference.get() : null;
+      if (interned == null) {
+        interned = intern(new CornerRadius(scratchRadii.clone()));
+      }
+      return interned;
     }
+  }
 
-    return cornerRadius;
+  /**
+   * Returns the radii of the frames of an animation from {@code startRadii} to {@code endRadii},
+   * with the offset applied like {@link #withOffset(float)} does, or null if the animation has more
+   * than {@link #MAX_ANIMATION_FRAMES} frames. The frames are interned while the returned array is
+   * kept, so {@link #obtainWithOffset(float[], float)} finds the radii of every frame without
+   * allocating.
+   * <p>
+   * The radii of a frame are interpolated linearly per corner, like
+   * {@code start + (end - start) * fraction}.
+   */
+  @Nullable
+  static CornerRadius[] obtainAnimationFrames(float[] startRadii, float[] endRadii, float offset) {
+    int count = 0;
+    for (int i = 0; i < COUNT_RADII; i++) {
+      count += Math.abs((int) (endRadii[i] + offset) - (int) (startRadii[i] + offset));
+    }
+    if (count > MAX_ANIMATION_FRAMES) {
+      return null;
+    }
+    // the fractions at which a corner reaches another whole pixel, and both ends
+    final float[] fractions = new float[count + 2];
+    int fractionCount = 0;
+    fractions[fractionCount++] = 0f;
+    for (int i = 0; i < COUNT_RADII; i++) {
+      final float start = startRadii[i] + offset;
+      final float delta = endRadii[i] - startRadii[i];
+      final int from = (int) Math.min(start, start + delta);
+      final int to = (int) Math.max(start, start + delta);
+      for (int pixel = from + 1; pixel <= to; pixel++) {
+        fractions[fractionCount++] = (pixel - start) / delta;
+      }
+    }
+    fractions[fractionCount++] = 1f;
+    Arrays.sort(fractions, 0, fractionCount);
+
+    // the radii at every fraction, and between them where the radii do not change
+    final CornerRadius[] frames = new CornerRadius[2 * fractionCount - 1];
+    final float[] radii = new float[COUNT_RADII];
+    for (int frame = 0; frame < frames.length; frame++) {
+      final float fraction = frame % 2 == 0
+        ? fractions[frame / 2]
+        : (fractions[frame / 2] + fractions[frame / 2 + 1]) / 2;
+      for (int i = 0; i < COUNT_RADII; i++) {
+        radii[i] = startRadii[i] + (endRadii[i] - startRadii[i]) * fraction;
+      }
+      frames[frame] = obtainWithOffset(radii, offset);
+    }
+    return frames;
   }
 
   /**
    * The corners are ordered top-left, top-right, bottom-right, bottom-left.
    */
-  private float[] mCornerRadii;
+  private final float[] mCornerRadii;
+
+  private final float[] mRadii;
+
+  private final float mMaxRadius;
 
+  private final boolean mUniform;
 
+  // not final only so that sScratch can be reused to look up interned radii
+  private int mHashCode;
+
+  private CornerRadius(float[] cornerRadii) {
+    mCornerRadii = cornerRadii;
+    mRadii = new float[2 * COUNT_RADII];
+    float maxRadius = 0;
+    boolean uniform = true;
+    for (int i = 0; i < COUNT_RADII; i++) {
+      mRadii[2 * i] = cornerRadii[i];
+      mRadii[2 * i + 1] = cornerRadii[i];
+      maxRadius = Math.max(maxRadius, cornerRadii[i]);
+      uniform &= cornerRadii[i] == cornerRadii[0];
+    }
+    mMaxRadius = maxRadius;
+    mUniform = uniform;
+    mHashCode = Arrays.hashCode(cornerRadii);
+  }
+
+  /**
+   * Returns a copy of the radii, the corners are ordered top-left, top-right, bottom-right,
+   * bottom-left.
+   */
   float[] getCornerRadii() {
-    return mCornerRadii;
+    return mCornerRadii.clone();
   }
 
   /**
    * Specify radii for each of the 4 corners. For each corner, the array contains 2 values, [X_radius, Y_radius].
    * The corners are ordered top-left, top-right, bottom-right, bottom-left radii the x and y radii of the corners.
+   * <p>
+   * The array is shared and must not be modified.
    */
   float[] getRadii() {
-    float[] radii = new float[8];
-    for (int i = 0; i < COUNT_RADII; i++) {
-      radii[2 * i] = mCornerRadii[i];
-      radii[2 * i + 1] = mCornerRadii[i];
-    }
-    return radii;
+    return mRadii;
+  }
+
+  /**
+   * Returns the radius of a corner, one of {@link #TOP_LEFT_INDEX}, {@link #TOP_RIGHT_INDEX},
+   * {@link #BOTTOM_RIGHT_INDEX} or {@link #BOTTOM_LEFT_INDEX}.
+   */
+  float getRadius(int corner) {
+    return mCornerRadii[corner];
   }
 
   float getTopLeft() {
@@ -76,18 +209,36 @@ public class CornerRadius {
     return mCornerRadii[BOTTOM_LEFT_INDEX];
   }
 
+  boolean isUniform() {
+    return mUniform;
+  }
+
   float getMaxRadius() {
-    float maxRadius = 0;
+    return mMaxRadius;
+  }
+
+  /**
+   * Returns the radii with the offset added to each corner and truncated to whole pixels.
+   */
+  CornerRadius withOffset(float offset) {
+    float[] radii = new float[COUNT_RADII];
     for (int i = 0; i < COUNT_RADII; i++) {
-      maxRadius = Math.max(maxRadius, mCornerRadii[i]);
+      radii[i] = (int) (mCornerRadii[i] + offset);
     }
-    return maxRadius;
+    return intern(new CornerRadius(radii));
   }
 
-  void addOffset(float offset) {
+  /**
+   * Returns true if these radii are equal to {@code radii} with the offset applied like
+   * {@link #withOffset(float)} does, without building the offset radii.
+   */
+  boolean equalsWithOffset(float[] radii, float offset) {
     for (int i = 0; i < COUNT_RADII; i++) {
-      mCornerRadii[i] = (int) (mCornerRadii[i] + offset);
+      if (mCornerRadii[i] != (int) (radii[i] + offset)) {
+        return false;
+      }
     }
+    return true;
   }
 
   public boolean equals(float[] radii) {
@@ -96,13 +247,18 @@ public class CornerRadius {
 
   @Override
   public boolean equals(@Nullable Object obj) {
-    if (obj == null) {
-      return false;
-    }
-    else if (!(obj instanceof CornerRadius))
+    if (this == obj) {
+      return true;
+    } else if (!(obj instanceof CornerRadius)) {
       return false;
-    else {
-      return ((CornerRadius) obj).equals(mCornerRadii);
+    } else {
+      CornerRadius other = (CornerRadius) obj;
+      return mHashCode == other.mHashCode && other.equals(mCornerRadii);
     }
   }
+
+  @Override
+  public int hashCode() {
+    return mHashCode;
+  }
 }
@@ -16,33 +16,37 @@
 package easy.peasy.cardview.widget;
 
 import android.content.res.ColorStateList;
-import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
-import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PixelFormat;
-import android.graphics.RadialGradient;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.graphics.drawable.LayerDrawable;
+import android.graphics.drawable.RippleDrawable;
 
 import androidx.annotation.Nullable;
-import easy.peasy.cardview.R;
+import androidx.tracing.Trace;
+
 
 /**
  * A rounded rectangle drawable which also includes a shadow around.
+ * <p>
+ * The card itself is drawn by the card drawable, which is hosted inside the shadow area, so the
+ * card needs no extra child view for its background and ripple.
  */
-class RoundRectDrawableWithShadow extends Drawable {
+class RoundRectDrawableWithShadow extends Drawable implements Drawable.Callback {
 
-  private static final float SHADOW_MULTIPLIER = 1.5f;
+  private static final float SHADOW_MULTIPLIER = ShadowGeometry.SHADOW_MULTIPLIER;
 
-  private static final int SHADOW_OFFSET = 25;
+  private static final int SHADOW_OFFSET = ShadowGeometry.SHADOW_OFFSET;
 
-  private static final float RADIUS_OFFSET = .5f;
+  static final float RADIUS_OFFSET = .5f;
 
   private final int mInsetShadow; // extra shadow to avoid gaps between card and shadow
 
@@ -60,11 +64,84 @@ class RoundRectDrawableWithShadow extends Drawable {
 
   private final Paint mEdgeShadowPaint;
 
+  private final Paint mAtlasPaint;
+
   private final RectF mCardBounds;
 
+  private final RectF mCornerShadowBounds = new RectF();
+
+  private final RectF mEdgeShadowBounds = new RectF();
+
   private CornerRadius mCornerRadius;
 
-  private Path mCornerShadowPath;
+  @CardView.ShadowRenderMode
+  private int mShadowRenderMode = CardView.SHADOW_RENDER_MODE_ATLAS;
+
+  // draws the shadow on all sides instead of below the card only
+  private boolean mShadowAllSides;
+
+  // the shadow size is animated, see startShadowAnimation()
+  private boolean mShadowAnimating;
+
+  // the corner radii are animated, see startRadiiAnimation()
+  private boolean mRadiiAnimating;
+
+  // the radii of the frames of the radii animation, kept so they stay interned
+  @Nullable
+  private CornerRadius[] mRadiiFrames;
+
+  // used by SHADOW_RENDER_MODE_GRADIENT, per corner. A corner with the radius of a previous corner
+  // uses the path and shader of that corner, its source.
+  private final Path[] mCornerShadowPaths = new Path[CornerRadius.COUNT_RADII];
+
+  private final int[] mCornerSources = new int[CornerRadius.COUNT_RADII];
+
+  private final RectF mInnerShadowBounds = new RectF();
+
+  private final RectF mOuterShadowBounds = new RectF();
+
+  // unit size gradients shared with every card using the same shadow colors
+  @Nullable
+  private ShadowShaders mShadowShaders;
+
+  private final Shader[] mCornerShaders = new Shader[CornerRadius.COUNT_RADII];
+
+  // the paths and gradients are built for the current shadow. They are drawn while there is no
+  // atlas, also as the placeholder of an atlas rendered in the background.
+  private boolean mShadowPathsValid;
+
+  // the corner paths and gradients are unit size, drawn in a canvas scaled by the outer radius
+  private final float[] mCornerShadowScales = new float[CornerRadius.COUNT_RADII];
+
+  // used by SHADOW_RENDER_MODE_ATLAS, shared with every card using the same shadow parameters
+  @Nullable
+  private ShadowCache.Atlas mShadowAtlas;
+
+  private final ShadowCache.Key mShadowKey = new ShadowCache.Key();
+
+  private boolean mAsyncShadowRendering;
+
+  // pending background render of mShadowKey
+  @Nullable
+  private ShadowCache.Request mShadowRequest;
+
+  // background render of the frames of the shadow animation
+  @Nullable
+  private ShadowCache.Prefetch mShadowPrefetch;
+
+  private final ShadowCache.Callback mAtlasCallback = new ShadowCache.Callback() {
+    @Override
+    public void onAtlasReady(@Nullable ShadowCache.Atlas atlas) {
+      mShadowRequest = null;
+      if (atlas == null) {
+        // The render job was dropped during a fling. The gradient placeholder is drawn until the
+        // shadow is rebuilt, requesting it again on the next draw would only drop another job.
+        return;
+      }
+      setShadowAtlas(atlas);
+      invalidateSelf();
+    }
+  };
 
   // actual value set by developer
   private float mRawMaxShadowSize;
@@ -77,35 +154,56 @@ class RoundRectDrawableWithShadow extends Drawable {
 
   private ColorStateList mBackground;
 
+  // the shadow geometry has to be rebuilt before drawing. State changes never set this.
   private boolean mDirty = true;
 
+  private boolean mShadowEnabled = true;
+
+  // the shadow is drawn by CardShadowItemDecoration instead of draw()
+  private boolean mShadowDrawnExternally;
+
+  @Nullable
+  private Drawable mCardDrawable;
+
+  private final Rect mCardDrawableBounds = new Rect();
+
+  // radii of the card drawable, x and y per corner. Shared with its gradients, which keep the array.
+  private final float[] mCardDrawableRadii = new float[2 * CornerRadius.COUNT_RADII];
+
+  // the card drawable no longer shares its constant state, see updateCardDrawableRadii()
+  private boolean mCardDrawableMutated;
+
+  // the card drawable is hidden by opaque content, see setCardBodyCovered()
+  private boolean mCardBodyCovered;
+
+  private final Rect mShadowPadding = new Rect();
+
   private int mShadowStartColor;
 
   private int mShadowEndColor;
 
+  // nesting depth of the edits, see beginBatch()
+  private int mBatchDepth;
+
+  private boolean mInvalidatePending;
+
+  private boolean mPaddingUpdatePending;
+
   /**
    * If shadow size is set to a value above max shadow, we print a warning
    */
   private boolean mPrintedShadowClipWarning = false;
 
-  RoundRectDrawableWithShadow(Resources resources, ColorStateList backgroundColor, CornerRadius cornerRadius, float shadowSize, float maxShadowSize, int shadowStartColor, int shadowEndColor) {
-    if (shadowStartColor != 0) {
-      mShadowStartColor = shadowStartColor;
-    } else {
-      mShadowStartColor = resources.getColor(R.color.cardview_shadow_start_color);
-    }
-    if (shadowEndColor != 0) {
-      mShadowEndColor = shadowEndColor;
-    } else {
-      mShadowEndColor = resources.getColor(R.color.cardview_shadow_end_color);
-    }
-    mInsetShadow = resources.getDimensionPixelSize(R.dimen.cardview_compat_inset_shadow);
+  RoundRectDrawableWithShadow(ColorStateList backgroundColor, CornerRadius cornerRadius, float shadowSize, float maxShadowSize, int shadowStartColor, int shadowEndColor, int insetShadow) {
+    mShadowStartColor = shadowStartColor;
+    mShadowEndColor = shadowEndColor;
+    mInsetShadow = insetShadow;
     mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
     setBackground(backgroundColor);
     mCornerShadowPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
     mCornerShadowPaint.setStyle(Paint.Style.FILL);
-    mCornerRadius = cornerRadius;
-    mCornerRadius.addOffset(RADIUS_OFFSET);
+    mAtlasPaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+    mCornerRadius = cornerRadius.withOffset(RADIUS_OFFSET);
     mCardBounds = new RectF();
     mEdgeShadowPaint = new Paint(mCornerShadowPaint);
     mEdgeShadowPaint.setAntiAlias(false);
@@ -117,17 +215,6 @@ class RoundRectDrawableWithShadow extends Drawable {
     mPaint.setColor(mBackground.getColorForState(getState(), mBackground.getDefaultColor()));
   }
 
-  /**
-   * Casts the value to an even integer.
-   */
-  private int toEven(float value) {
-    int i = (int) (value + .5f);
-    if (i % 2 == 1) {
-      return i - 1;
-    }
-    return i;
-  }
-
   void setAddPaddingForCorners() {
     invalidateSelf();
   }
@@ -137,12 +224,152 @@ class RoundRectDrawableWithShadow extends Drawable {
     mPaint.setAlpha(alpha);
     mCornerShadowPaint.setAlpha(alpha);
     mEdgeShadowPaint.setAlpha(alpha);
+    mAtlasPaint.setAlpha(alpha);
+    if (mCardDrawable != null) {
+      mCardDrawable.setAlpha(alpha);
+    }
+  }
+
+  @Override
+  public int getAlpha() {
+    return mAtlasPaint.getAlpha();
   }
 
   @Override
   protected void onBoundsChange(Rect bounds) {
     super.onBoundsChange(bounds);
-    mDirty = true;
+    // the shadow corners do not depend on the bounds, only the card bounds need an update
+    buildCardBounds(bounds);
+    updateCardDrawableBounds();
+  }
+
+  /**
+   * Sets the drawable of the card itself, usually a ripple with the card background. It is drawn
+   * over the shadow within the card bounds and receives state and hotspot changes.
+   */
+  void setCardDrawable(@Nullable Drawable drawable) {
+    if (mCardDrawable == drawable) {
+      return;
+    }
+    if (mCardDrawable != null) {
+      mCardDrawable.setCallback(null);
+    }
+    mCardDrawable = drawable;
+    mCardDrawableMutated = false;
+    if (drawable != null) {
+      drawable.setCallback(this);
+      drawable.setState(getState());
+      drawable.setVisible(isVisible(), false);
+      updateCardDrawableBounds();
+    }
+    invalidateSelf();
+  }
+
+  @Nullable
+  Drawable getCardDrawable() {
+    return mCardDrawable;
+  }
+
+  private void updateCardDrawableBounds() {
+    if (mCardDrawable == null) {
+      return;
+    }
+    // the card itself, without the area reserved for the shadow
+    getPadding(mCardDrawableBounds);
+    Rect bounds = getBounds();
+    mCardDrawableBounds.set(bounds.left + mCardDrawableBounds.left, bounds.top + mCardDrawableBounds.top, bounds.right - mCardDrawableBounds.right, bounds.bottom - mCardDrawableBounds.bottom);
+    mCardDrawable.setBounds(mCardDrawableBounds);
+  }
+
+  @Override
+  public void setHotspot(float x, float y) {
+    if (mCardDrawable != null) {
+      mCardDrawable.setHotspot(x, y);
+    }
+  }
+
+  @Override
+  public void jumpToCurrentState() {
+    if (mCardDrawable != null) {
+      mCardDrawable.jumpToCurrentState();
+    }
+  }
+
+  @Override
+  public boolean setVisible(boolean visible, boolean restart) {
+    final boolean changed = super.setVisible(visible, restart);
+    if (!visible && mShadowRequest != null) {
+      cancelShadowRequest();
+      mDirty = true;
+    }
+    if (mCardDrawable != null) {
+      mCardDrawable.setVisible(visible, restart);
+    }
+    return changed;
+  }
+
+  @Override
+  public void invalidateSelf() {
+    if (mBatchDepth > 0) {
+      mInvalidatePending = true;
+      return;
+    }
+    super.invalidateSelf();
+  }
+
+  /**
+   * Starts a batch of edits. Invalidations and padding updates are deferred until the outermost
+   * batch ends.
+   */
+  void beginBatch() {
+    mBatchDepth++;
+  }
+
+  /**
+   * Returns true if the padding update is deferred to the end of the batch.
+   */
+  boolean deferPaddingUpdate() {
+    if (mBatchDepth > 0) {
+      mPaddingUpdatePending = true;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Ends a batch of edits, invalidating the drawable once if an edit invalidated it.
+   *
+   * @return true if the padding has to be updated
+   */
+  boolean endBatch() {
+    if (mBatchDepth == 0) {
+      throw new IllegalStateException("endBatch() without beginBatch()");
+    }
+    if (--mBatchDepth > 0) {
+      return false;
+    }
+    final boolean paddingUpdate = mPaddingUpdatePending;
+    mPaddingUpdatePending = false;
+    if (mInvalidatePending) {
+      mInvalidatePending = false;
+      super.invalidateSelf();
+    }
+    return paddingUpdate;
+  }
+
+  @Override
+  public void invalidateDrawable(Drawable who) {
+    invalidateSelf();
+  }
+
+  @Override
+  public void scheduleDrawable(Drawable who, Runnable what, long when) {
+    scheduleSelf(what, when);
+  }
+
+  @Override
+  public void unscheduleDrawable(Drawable who, Runnable what) {
+    unscheduleSelf(what);
   }
 
   private void setShadowSize(float shadowSize, float maxShadowSize) {
@@ -152,8 +379,8 @@ class RoundRectDrawableWithShadow extends Drawable {
     if (maxShadowSize < 0f) {
       throw new IllegalArgumentException("Invalid max shadow size " + maxShadowSize + ". Must be >= 0");
     }
-    shadowSize = toEven(shadowSize);
-    maxShadowSize = toEven(maxShadowSize);
+    shadowSize = ShadowGeometry.toEven(shadowSize);
+    maxShadowSize = ShadowGeometry.toEven(maxShadowSize);
     if (shadowSize > maxShadowSize) {
       shadowSize = maxShadowSize;
       if (!mPrintedShadowClipWarning) {
@@ -165,53 +392,86 @@ class RoundRectDrawableWithShadow extends Drawable {
     }
     mRawShadowSize = shadowSize;
     mRawMaxShadowSize = maxShadowSize;
-    mShadowSize = (int) (shadowSize * SHADOW_MULTIPLIER + mInsetShadow + .5f);
+    mShadowSize = ShadowGeometry.calculateShadowSize(shadowSize, mInsetShadow);
     mDirty = true;
+    updateCardDrawableBounds();
     invalidateSelf();
   }
 
   @Override
   public boolean getPadding(Rect padding) {
-    int bottomOffset = (int) Math.ceil(calculateVerticalPadding(mRawMaxShadowSize, mCornerRadius));
-    padding.set(0, 0, 0, bottomOffset);
+    int verticalOffset = (int) Math.ceil(ShadowGeometry.calculateVerticalPadding(mRawMaxShadowSize));
+    if (mShadowAllSides) {
+      int horizontalOffset = (int) Math.ceil(mRawMaxShadowSize);
+      padding.set(horizontalOffset, verticalOffset, horizontalOffset, verticalOffset);
+    } else {
+      padding.set(0, 0, 0, verticalOffset);
+    }
     return true;
   }
 
-  static float calculateVerticalPadding(float maxShadowSize, CornerRadius cornerRadius) {
-    return maxShadowSize * SHADOW_MULTIPLIER;
-  }
-
   @Override
   protected boolean onStateChange(int[] stateSet) {
-    final int newColor = mBackground.getColorForState(stateSet, mBackground.getDefaultColor());
-    if (mPaint.getColor() == newColor) {
-      return false;
-    }
-    mPaint.setColor(newColor);
-    mDirty = true;
-    invalidateSelf();
-    return true;
+    // the card drawable draws the card, the shadow does not depend on its color
+    mPaint.setColor(mBackground.getColorForState(stateSet, mBackground.getDefaultColor()));
+    // The card drawable invalidates itself for changes its result does not report, like a ripple
+    // starting to animate, so its invalidations are passed on.
+    return mCardDrawable != null && mCardDrawable.isStateful() && mCardDrawable.setState(stateSet);
   }
 
   @Override
   public boolean isStateful() {
-    return (mBackground != null && mBackground.isStateful()) || super.isStateful();
+    return (mBackground != null && mBackground.isStateful())
+      || (mCardDrawable != null && mCardDrawable.isStateful())
+      || super.isStateful();
   }
 
   @Override
   public void setColorFilter(ColorFilter cf) {
     mPaint.setColorFilter(cf);
+    if (mCardDrawable != null) {
+      mCardDrawable.setColorFilter(cf);
+    }
   }
 
   @Override
   public int getOpacity() {
-    return PixelFormat.TRANSLUCENT;
+    // the shadow area and the rounded corners are translucent
+    if (mCardDrawable == null || mCornerRadius.getMaxRadius() > 0 || !mCardDrawableBounds.equals(getBounds())) {
+      return PixelFormat.TRANSLUCENT;
+    }
+    return getContentOpacity(mCardDrawable);
+  }
+
+  /**
+   * Returns the opacity of the content of the card drawable. A ripple reports itself translucent,
+   * as its ripples are, but only draws them over its content, which is its first layer.
+   */
+  private static int getContentOpacity(Drawable drawable) {
+    if (drawable instanceof RippleDrawable) {
+      final RippleDrawable ripple = (RippleDrawable) drawable;
+      if (ripple.getNumberOfLayers() == 0 || ripple.getId(0) == android.R.id.mask) {
+        return PixelFormat.TRANSLUCENT;
+      }
+      return ripple.getDrawable(0).getOpacity();
+    }
+    return drawable.getOpacity();
   }
 
   /**
-   * The corners are ordered top-left, top-right, bottom-right, bottom-left.
+   * Skips drawing the card drawable while opaque content covers it entirely, the shadow is still
+   * drawn. It is updated by the card right before it is drawn, so it does not invalidate.
    */
-  void setCornerRadii(float[] radii) {
+  void setCardBodyCovered(boolean covered) {
+    mCardBodyCovered = covered;
+  }
+
+  /**
+   * Sets the radii of the corners, ordered top-left, top-right, bottom-right, bottom-left.
+   *
+   * @return true if the radii changed
+   */
+  boolean setCornerRadii(float[] radii) {
     int countRadii = radii.length;
     if (countRadii != 4) {
       throw new IllegalArgumentException("Invalid count radii " + countRadii + ". Must be == 4");
@@ -224,95 +484,482 @@ class RoundRectDrawableWithShadow extends Drawable {
       }
     }
 
-    CornerRadius cornerRadius = CornerRadius.build(0f, radii[0], radii[1], radii[2], radii[3]);
-    cornerRadius.addOffset(RADIUS_OFFSET);
-
-    if (mCornerRadius.equals(cornerRadius)) {
-      return;
+    // compared in place, as cards are usually bound with the radii they already have
+    if (mCornerRadius.equalsWithOffset(radii, RADIUS_OFFSET)) {
+      return false;
     }
 
-    mCornerRadius = cornerRadius;
+    mCornerRadius = CornerRadius.obtainWithOffset(radii, RADIUS_OFFSET);
+    updateCardDrawableRadii(radii);
     mDirty = true;
     invalidateSelf();
+    return true;
+  }
+
+  /**
+   * Reshapes the gradients of the card drawable, so the background and the ripple mask follow the
+   * radii of the card.
+   */
+  private void updateCardDrawableRadii(float[] radii) {
+    if (mCardDrawable == null) {
+      return;
+    }
+    mutateCardDrawable();
+    for (int i = 0; i < CornerRadius.COUNT_RADII; i++) {
+      mCardDrawableRadii[2 * i] = radii[i];
+      mCardDrawableRadii[2 * i + 1] = radii[i];
+    }
+    setCardDrawableRadii(mCardDrawable);
+  }
+
+  private void mutateCardDrawable() {
+    if (!mCardDrawableMutated) {
+      // the constant state is shared by cards with the same colors and radii, see CardViewDrawable
+      mCardDrawable.mutate();
+      mCardDrawableMutated = true;
+    }
+  }
+
+  /**
+   * Recolors the background of the card drawable, the card drawable draws the card instead of
+   * {@link #mPaint}. The ripple mask keeps its color, it only masks the ripple.
+   */
+  private void updateCardDrawableColor() {
+    if (mCardDrawable == null) {
+      return;
+    }
+    mutateCardDrawable();
+    setCardDrawableColor(mCardDrawable);
+  }
+
+  private void setCardDrawableColor(Drawable drawable) {
+    if (drawable instanceof GradientDrawable) {
+      ((GradientDrawable) drawable).setColor(mBackground);
+    } else if (drawable instanceof LayerDrawable) {
+      LayerDrawable layers = (LayerDrawable) drawable;
+      for (int i = 0, count = layers.getNumberOfLayers(); i < count; i++) {
+        if (layers.getId(i) != android.R.id.mask) {
+          setCardDrawableColor(layers.getDrawable(i));
+        }
+      }
+    }
+  }
+
+  private void setCardDrawableRadii(Drawable drawable) {
+    if (drawable instanceof GradientDrawable) {
+      ((GradientDrawable) drawable).setCornerRadii(mCardDrawableRadii);
+    } else if (drawable instanceof LayerDrawable) {
+      LayerDrawable layers = (LayerDrawable) drawable;
+      for (int i = 0, count = layers.getNumberOfLayers(); i < count; i++) {
+        setCardDrawableRadii(layers.getDrawable(i));
+      }
+    }
   }
 
   @Override
   public void draw(Canvas canvas) {
-    if (mDirty) {
-      buildComponents(getBounds());
-      mDirty = false;
+    final CardViewMetrics metrics = CardView.sMetrics;
+    buildComponentsIfDirty(metrics);
+    if (mShadowEnabled && !mShadowDrawnExternally) {
+      drawShadow(canvas, mAtlasPaint, metrics);
+    }
+    if (mCardDrawable != null && !mCardBodyCovered) {
+      mCardDrawable.draw(canvas);
     }
-    canvas.translate(0, mRawShadowSize / 2);
-    drawShadow(canvas);
-    canvas.translate(0, -mRawShadowSize / 2);
     // sRoundRectHelper.drawRoundRect(canvas, mCardBounds, mCornerRadius, mPaint);
   }
 
-  private void drawShadow(Canvas canvas) {
-    final float edgeShadowTop = -mCornerRadius.getMaxRadius() - mShadowSize;
-    final float inset = mCornerRadius.getMaxRadius() + mInsetShadow + mRawShadowSize / 2;
-    final boolean drawHorizontalEdges = -2 * SHADOW_OFFSET + mCardBounds.width() - 2 * inset > 0;
+  /**
+   * Draws only the shadow, for shadows drawn outside of the card, see
+   * {@link #setShadowDrawnExternally(boolean)}. The canvas has to be in the coordinates of the
+   * card.
+   *
+   * @param atlasPaint The paint of the shadow atlas, with the color and alpha of this shadow. Its
+   *                   alpha applies to the gradient shadow too.
+   */
+  void drawExternalShadow(Canvas canvas, Paint atlasPaint) {
+    if (!mShadowEnabled) {
+      return;
+    }
+    final CardViewMetrics metrics = CardView.sMetrics;
+    buildComponentsIfDirty(metrics);
+    drawShadow(canvas, atlasPaint, metrics);
+  }
+
+  private void buildComponentsIfDirty(@Nullable CardViewMetrics metrics) {
+    if (!mDirty) {
+      return;
+    }
+    final long startNanos = metrics != null ? System.nanoTime() : 0;
+    Trace.beginSection("RoundRectDrawableWithShadow#buildComponents");
+    try {
+      buildComponents(getBounds());
+    } finally {
+      Trace.endSection();
+    }
+    mDirty = false;
+    if (metrics != null) {
+      metrics.onShadowBuild(System.nanoTime() - startNanos);
+    }
+  }
+
+  private void drawShadow(Canvas canvas, Paint atlasPaint, @Nullable CardViewMetrics metrics) {
+    final long startNanos = metrics != null ? System.nanoTime() : 0;
+    Trace.beginSection("RoundRectDrawableWithShadow#drawShadow");
+    try {
+      canvas.translate(0, mRawShadowSize / 2);
+      drawShadow(canvas, atlasPaint);
+      canvas.translate(0, -mRawShadowSize / 2);
+    } finally {
+      Trace.endSection();
+    }
+    if (metrics != null) {
+      metrics.onShadowDraw(System.nanoTime() - startNanos);
+    }
+  }
+
+  private void drawShadow(Canvas canvas, Paint atlasPaint) {
+    // the shadow below the card is narrowed by the offset, the shadow on all sides is not
+    final float offset = mShadowAllSides ? 0 : SHADOW_OFFSET;
+    final float insetTopLeft = getCornerInset(CornerRadius.TOP_LEFT_INDEX);
+    final float insetTopRight = getCornerInset(CornerRadius.TOP_RIGHT_INDEX);
+    final float insetBottomRight = getCornerInset(CornerRadius.BOTTOM_RIGHT_INDEX);
+    final float insetBottomLeft = getCornerInset(CornerRadius.BOTTOM_LEFT_INDEX);
+    final float width = mCardBounds.width();
+    final float height = mCardBounds.height();
     // RB
     int saved = canvas.save();
-    canvas.translate(-SHADOW_OFFSET + mCardBounds.right - inset, mCardBounds.bottom - inset);
+    canvas.translate(-offset + mCardBounds.right - insetBottomRight, mCardBounds.bottom - insetBottomRight);
     canvas.rotate(180f);
-    canvas.drawPath(mCornerShadowPath, mCornerShadowPaint);
+    drawCornerShadow(canvas, CornerRadius.BOTTOM_RIGHT_INDEX, atlasPaint);
     // B
-    if (drawHorizontalEdges) {
-      canvas.drawRect(0, edgeShadowTop, -2 * SHADOW_OFFSET + mCardBounds.width() - 2 * inset, -mCornerRadius.getMaxRadius() + mShadowSize, mEdgeShadowPaint);
-    }
+    drawEdgeShadow(canvas, CornerRadius.BOTTOM_RIGHT_INDEX, ShadowGeometry.calculateEdgeLength(width, insetBottomRight, insetBottomLeft, offset), atlasPaint);
     canvas.restoreToCount(saved);
     // LB
     saved = canvas.save();
-    canvas.translate(SHADOW_OFFSET + mCardBounds.left + inset, mCardBounds.bottom - inset);
+    canvas.translate(offset + mCardBounds.left + insetBottomLeft, mCardBounds.bottom - insetBottomLeft);
     canvas.rotate(270f);
-    canvas.drawPath(mCornerShadowPath, mCornerShadowPaint);
+    drawCornerShadow(canvas, CornerRadius.BOTTOM_LEFT_INDEX, atlasPaint);
+    if (mShadowAllSides) {
+      // L
+      drawEdgeShadow(canvas, CornerRadius.BOTTOM_LEFT_INDEX, ShadowGeometry.calculateEdgeLength(height, insetBottomLeft, insetTopLeft, 0), atlasPaint);
+    }
+    canvas.restoreToCount(saved);
+    if (!mShadowAllSides) {
+      return;
+    }
+    // LT
+    saved = canvas.save();
+    canvas.translate(mCardBounds.left + insetTopLeft, mCardBounds.top + insetTopLeft);
+    drawCornerShadow(canvas, CornerRadius.TOP_LEFT_INDEX, atlasPaint);
+    // T
+    drawEdgeShadow(canvas, CornerRadius.TOP_LEFT_INDEX, ShadowGeometry.calculateEdgeLength(width, insetTopLeft, insetTopRight, 0), atlasPaint);
     canvas.restoreToCount(saved);
+    // RT
+    saved = canvas.save();
+    canvas.translate(mCardBounds.right - insetTopRight, mCardBounds.top + insetTopRight);
+    canvas.rotate(90f);
+    drawCornerShadow(canvas, CornerRadius.TOP_RIGHT_INDEX, atlasPaint);
+    // R
+    drawEdgeShadow(canvas, CornerRadius.TOP_RIGHT_INDEX, ShadowGeometry.calculateEdgeLength(height, insetTopRight, insetBottomRight, 0), atlasPaint);
+    canvas.restoreToCount(saved);
+  }
+
+  private float getCornerInset(int corner) {
+    return ShadowGeometry.calculateCornerInset(mCornerRadius.getRadius(corner), mInsetShadow, mRawShadowSize);
+  }
+
+  /**
+   * Draws the shadow of a corner, the canvas is rotated so the corner is drawn as top-left corner
+   * centered at the origin.
+   */
+  private void drawCornerShadow(Canvas canvas, int corner, Paint atlasPaint) {
+    if (mShadowAtlas != null) {
+      final Rect tile = mShadowAtlas.mCornerBounds[corner];
+      // the corner center is the bottom-right pixel of the tile
+      mCornerShadowBounds.set(-tile.width(), -tile.height(), 0, 0);
+      canvas.drawBitmap(mShadowAtlas.mBitmap, tile, mCornerShadowBounds, atlasPaint);
+    } else if (mShadowPathsValid) {
+      final int source = mCornerSources[corner];
+      // shaders are shared, so they are scaled with the canvas instead of a local matrix, which
+      // would recreate their native instance whenever cards of other sizes are drawn in between
+      final float scale = mCornerShadowScales[source];
+      mCornerShadowPaint.setShader(mCornerShaders[source]);
+      // the alpha of the card and of a list drawing the shadow for it, like the atlas
+      mCornerShadowPaint.setAlpha(atlasPaint.getAlpha());
+      final int saved = canvas.save();
+      canvas.scale(scale, scale);
+      canvas.drawPath(mCornerShadowPaths[source], mCornerShadowPaint);
+      canvas.restoreToCount(saved);
+    }
+  }
+
+  /**
+   * Draws the shadow of the edge following a corner, in the canvas of
+   * {@link #drawCornerShadow(Canvas, int, Paint)}.
+   */
+  private void drawEdgeShadow(Canvas canvas, int corner, float length, Paint atlasPaint) {
+    if (length <= 0) {
+      return;
+    }
+    final float radius = mCornerRadius.getRadius(corner);
+    if (mShadowAtlas != null) {
+      mEdgeShadowBounds.set(0, -radius - mShadowSize, length, -radius + mShadowSize);
+      canvas.drawBitmap(mShadowAtlas.mBitmap, mShadowAtlas.mEdgeBounds, mEdgeShadowBounds, atlasPaint);
+    } else if (mShadowPathsValid) {
+      // we offset the content shadowSize/2 pixels up to make it more realistic.
+      // this is why edge shadow shader has some extra space
+      // When drawing bottom edge shadow, we use that extra space.
+      // The unit gradient is scaled to the shadow size with the canvas, like the corners.
+      final int saved = canvas.save();
+      canvas.translate(0, -radius);
+      canvas.scale(1f, mShadowSize);
+      mEdgeShadowBounds.set(0, -1, length, 1);
+      mEdgeShadowPaint.setShader(mShadowShaders.getEdgeShader());
+      mEdgeShadowPaint.setAlpha(atlasPaint.getAlpha());
+      canvas.drawRect(mEdgeShadowBounds, mEdgeShadowPaint);
+      canvas.restoreToCount(saved);
+    }
   }
 
   private void buildShadowCorners() {
-    RectF innerBounds = new RectF(-mCornerRadius.getMaxRadius(), -mCornerRadius.getMaxRadius(), mCornerRadius.getMaxRadius(), mCornerRadius.getMaxRadius());
-    RectF outerBounds = new RectF(innerBounds);
-    outerBounds.inset(-mShadowSize, -mShadowSize);
+    if (usesShadowAtlas()) {
+      buildShadowAtlas();
+    } else {
+      buildShadowPaths();
+    }
+  }
+
+  private boolean usesShadowAtlas() {
+    if (mRadiiAnimating) {
+      // the paths are reshaped in place, while every radius would render an atlas
+      return false;
+    }
+    // the frames of an elevation animation are cached atlases in both modes
+    return mShadowRenderMode == CardView.SHADOW_RENDER_MODE_ATLAS || mShadowAnimating;
+  }
+
+  private void buildShadowAtlas() {
+    // the paths are kept for reuse by a placeholder
+    mShadowPathsValid = false;
+    mCornerShadowPaint.setShader(null);
+    mEdgeShadowPaint.setShader(null);
+    cancelShadowRequest();
+    mShadowKey.set(mCornerRadius, mShadowSize, mInsetShadow, mShadowStartColor, mShadowEndColor);
+    if (mShadowAnimating || mAsyncShadowRendering) {
+      setShadowAtlas(ShadowCache.get(mShadowKey));
+      if (mShadowAtlas == null) {
+        // The gradient shadow needs no bitmap, it is drawn until the atlas is rendered. The atlas
+        // of the last frame is not kept, its corners would not meet the edges of this size.
+        buildShadowPaths();
+        mShadowRequest = ShadowCache.requestAsync(mShadowKey, mAtlasCallback);
+      }
+    } else {
+      setShadowAtlas(ShadowCache.obtain(mShadowKey));
+    }
+  }
+
+  private void setShadowAtlas(@Nullable ShadowCache.Atlas atlas) {
+    mShadowAtlas = atlas;
+    if (atlas != null) {
+      // alpha masks are tinted with the paint color, other atlases only use its alpha
+      final int alpha = mAtlasPaint.getAlpha();
+      mAtlasPaint.setColor(mShadowStartColor);
+      mAtlasPaint.setAlpha(alpha);
+    }
+  }
+
+  private void cancelShadowPrefetch() {
+    if (mShadowPrefetch != null) {
+      mShadowPrefetch.cancel();
+      mShadowPrefetch = null;
+    }
+  }
+
+  private void cancelShadowRequest() {
+    if (mShadowRequest != null) {
+      mShadowRequest.cancel();
+      mShadowRequest = null;
+    }
+  }
+
+  private void buildShadowPaths() {
+    cancelShadowRequest();
+    mShadowAtlas = null;
+    if (mShadowShaders == null || !mShadowShaders.matches(mShadowStartColor, mShadowEndColor)) {
+      mShadowShaders = ShadowShaders.obtain(mShadowStartColor, mShadowEndColor);
+    }
+    for (int corner = 0; corner < CornerRadius.COUNT_RADII; corner++) {
+      final float radius = mCornerRadius.getRadius(corner);
+      int source = corner;
+      for (int previous = 0; previous < corner; previous++) {
+        if (mCornerRadius.getRadius(previous) == radius) {
+          source = mCornerSources[previous];
+          break;
+        }
+      }
+      mCornerSources[corner] = source;
+      if (source != corner) {
+        continue;
+      }
+      final float outerRadius = radius + mShadowSize;
+      final float startRatio = outerRadius > 0 ? radius / outerRadius : 0;
+      buildCornerShadowPath(corner, startRatio);
+      mCornerShaders[corner] = mShadowShaders.getCornerShader(startRatio);
+      mCornerShadowScales[corner] = outerRadius;
+    }
+    mEdgeShadowPaint.setAntiAlias(false);
+    mShadowPathsValid = true;
+  }
 
-    if (mCornerShadowPath == null) {
-      mCornerShadowPath = new Path();
+  /**
+   * Builds the unit size path of a corner shadow, a quarter ring with the outer radius 1.
+   */
+  private void buildCornerShadowPath(int corner, float innerRadius) {
+    mInnerShadowBounds.set(-innerRadius, -innerRadius, innerRadius, innerRadius);
+    mOuterShadowBounds.set(-1, -1, 1, 1);
+
+    Path path = mCornerShadowPaths[corner];
+    if (path == null) {
+      path = new Path();
+      mCornerShadowPaths[corner] = path;
     } else {
-      mCornerShadowPath.reset();
+      path.reset();
     }
-    mCornerShadowPath.setFillType(Path.FillType.EVEN_ODD);
-    mCornerShadowPath.moveTo(-mCornerRadius.getMaxRadius(), 0);
-    mCornerShadowPath.rLineTo(-mShadowSize, 0);
+    path.setFillType(Path.FillType.EVEN_ODD);
+    path.moveTo(-innerRadius, 0);
+    path.lineTo(-1, 0);
     // outer arc
-    mCornerShadowPath.arcTo(outerBounds, 180f, 90f, false);
+    path.arcTo(mOuterShadowBounds, 180f, 90f, false);
     // inner arc
-    mCornerShadowPath.arcTo(innerBounds, 270f, -90f, false);
-    mCornerShadowPath.close();
-    float startRatio = mCornerRadius.getMaxRadius() / (mCornerRadius.getMaxRadius() + mShadowSize);
-    mCornerShadowPaint.setShader(new RadialGradient(0, 0, mCornerRadius.getMaxRadius() + mShadowSize, new int[]{mShadowStartColor, mShadowStartColor, mShadowEndColor}, new float[]{0f, startRatio, 1f}, Shader.TileMode.CLAMP));
-
-    // we offset the content shadowSize/2 pixels up to make it more realistic.
-    // this is why edge shadow shader has some extra space
-    // When drawing bottom edge shadow, we use that extra space.
-    mEdgeShadowPaint.setShader(new LinearGradient(0, -mCornerRadius.getMaxRadius() + mShadowSize, 0, -mCornerRadius.getMaxRadius() - mShadowSize, new int[]{mShadowStartColor, mShadowStartColor, mShadowEndColor}, new float[]{0f, .5f, 1f}, Shader.TileMode.CLAMP));
-    mEdgeShadowPaint.setAntiAlias(false);
+    path.arcTo(mInnerShadowBounds, 270f, -90f, false);
+    path.close();
   }
 
   private void buildComponents(Rect bounds) {
+    buildCardBounds(bounds);
+    if (mShadowEnabled) {
+      buildShadowCorners();
+    }
+  }
+
+  private void buildCardBounds(Rect bounds) {
     // Card is offset SHADOW_MULTIPLIER * maxShadowSize to account for the shadow shift.
     // We could have different top-bottom offsets to avoid extra gap above but in that case
     // center aligning Views inside the CardView would be problematic.
     final float verticalOffset = mRawMaxShadowSize * SHADOW_MULTIPLIER;
     mCardBounds.set(bounds.left + mRawMaxShadowSize, bounds.top + verticalOffset, bounds.right - mRawMaxShadowSize, bounds.bottom - verticalOffset);
-    buildShadowCorners();
+  }
+
+  /**
+   * Disables drawing of the shadow when it is rendered by other means. Padding and minimum size
+   * still account for the shadow.
+   */
+  void setShadowEnabled(boolean enabled) {
+    if (mShadowEnabled == enabled) {
+      return;
+    }
+    mShadowEnabled = enabled;
+    if (!enabled) {
+      cancelShadowRequest();
+    }
+    mDirty = true;
+    invalidateSelf();
+  }
+
+  boolean isShadowEnabled() {
+    return mShadowEnabled;
+  }
+
+  /**
+   * Leaves the shadow out of {@link #draw(Canvas)}, as it is drawn with
+   * {@link #drawExternalShadow(Canvas, Paint)} by the parent.
+   */
+  void setShadowDrawnExternally(boolean external) {
+    if (mShadowDrawnExternally == external) {
+      return;
+    }
+    mShadowDrawnExternally = external;
+    invalidateSelf();
+  }
+
+  /**
+   * Draws the shadow on all four sides of the card instead of below it only. The padding then
+   * reserves room for the shadow on every side.
+   */
+  void setShadowAllSides(boolean allSides) {
+    if (mShadowAllSides == allSides) {
+      return;
+    }
+    mShadowAllSides = allSides;
+    updateCardDrawableBounds();
+    invalidateSelf();
+  }
+
+  boolean isShadowAllSides() {
+    return mShadowAllSides;
+  }
+
+  boolean isShadowDrawnExternally() {
+    return mShadowDrawnExternally;
+  }
+
+  /**
+   * Returns the atlas the shadow is drawn with, or null if there is none yet.
+   */
+  @Nullable
+  ShadowCache.Atlas getShadowAtlas() {
+    return mShadowAtlas;
+  }
+
+  CornerRadius getCornerRadius() {
+    return mCornerRadius;
+  }
+
+  void setShadowRenderMode(@CardView.ShadowRenderMode int mode) {
+    if (mShadowRenderMode == mode) {
+      return;
+    }
+    mShadowRenderMode = mode;
+    mDirty = true;
+    invalidateSelf();
+  }
+
+  @CardView.ShadowRenderMode
+  int getShadowRenderMode() {
+    return mShadowRenderMode;
+  }
+
+  /**
+   * Renders shadow atlases missing from the cache on a background thread instead of while
+   * drawing. The frames drawn meanwhile draw the gradient shadow, which needs no bitmap.
+   */
+  void setAsyncShadowRendering(boolean async) {
+    if (mAsyncShadowRendering == async) {
+      return;
+    }
+    mAsyncShadowRendering = async;
+    if (!async && mShadowRequest != null) {
+      cancelShadowRequest();
+      mDirty = true;
+      invalidateSelf();
+    }
+  }
+
+  boolean isAsyncShadowRendering() {
+    return mAsyncShadowRendering;
   }
 
   float[] getCornerRadii() {
     return mCornerRadius.getCornerRadii();
   }
 
-  void getMaxShadowAndCornerPadding(Rect into) {
-    getPadding(into);
+  /**
+   * Returns the padding of the shadow. The rect is reused by the next call and must not be kept.
+   */
+  Rect getMaxShadowAndCornerPadding() {
+    getPadding(mShadowPadding);
+    return mShadowPadding;
   }
 
   void setShadowSize(float size) {
@@ -327,20 +974,101 @@ class RoundRectDrawableWithShadow extends Drawable {
     return mRawShadowSize;
   }
 
+  /**
+   * Prepares an animation of the shadow size. The atlases of the shadow sizes in between are
+   * rendered on a background thread in the order of the animation, and each frame draws the atlas
+   * of its size once it is cached, instead of building its shadow while drawing. Frames missing
+   * from the cache draw the gradient shadow meanwhile. The render is cancelled when the animation
+   * ends.
+   */
+  void startShadowAnimation(float fromSize, float toSize) {
+    if (!mShadowEnabled) {
+      return;
+    }
+    final int from = ShadowGeometry.toEven(Math.min(fromSize, mRawMaxShadowSize));
+    final int to = ShadowGeometry.toEven(Math.min(toSize, mRawMaxShadowSize));
+    // shadow sizes are even, so every other pixel is a frame
+    final int step = from <= to ? 2 : -2;
+    final ShadowCache.Key[] keys = new ShadowCache.Key[Math.abs(to - from) / 2 + 1];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new ShadowCache.Key();
+      keys[i].set(mCornerRadius, ShadowGeometry.calculateShadowSize(from + i * step, mInsetShadow), mInsetShadow, mShadowStartColor, mShadowEndColor);
+    }
+    cancelShadowPrefetch();
+    mShadowPrefetch = ShadowCache.prefetchAsync(keys);
+    if (!mShadowAnimating) {
+      final boolean usedShadowAtlas = usesShadowAtlas();
+      mShadowAnimating = true;
+      invalidateIfShadowSourceChanged(usedShadowAtlas);
+    }
+  }
+
+  /**
+   * Prepares an animation of the corner radii. The frames reshape the paths of the gradient shadow
+   * in place and scale the shared gradients with the canvas, instead of rendering an atlas for
+   * every radius. The radii of the frames are obtained ahead, so setting them does not allocate.
+   */
+  void startRadiiAnimation(float[] startRadii, float[] endRadii) {
+    mRadiiFrames = CornerRadius.obtainAnimationFrames(startRadii, endRadii, RADIUS_OFFSET);
+    if (mRadiiAnimating) {
+      return;
+    }
+    final boolean usedShadowAtlas = usesShadowAtlas();
+    mRadiiAnimating = true;
+    invalidateIfShadowSourceChanged(usedShadowAtlas);
+  }
+
+  /**
+   * Ends the animation of the corner radii, the shadow is built for the final radii in the render
+   * mode of the card.
+   */
+  void endRadiiAnimation() {
+    if (!mRadiiAnimating) {
+      return;
+    }
+    final boolean usedShadowAtlas = usesShadowAtlas();
+    mRadiiAnimating = false;
+    mRadiiFrames = null;
+    // the frames built the shadow of the final radii already, unless it is drawn from the atlas now
+    invalidateIfShadowSourceChanged(usedShadowAtlas);
+  }
+
+  /**
+   * Ends the animation of the shadow size, the shadow is built for the final size in the render
+   * mode of the card.
+   */
+  void endShadowAnimation() {
+    if (!mShadowAnimating) {
+      return;
+    }
+    mShadowAnimating = false;
+    cancelShadowPrefetch();
+    // also when the shadow stays in the atlas, the last frame may still draw the placeholder
+    mDirty = true;
+    invalidateSelf();
+  }
+
+  /**
+   * Rebuilds the shadow if an animation switched it between the atlas and the gradients, as only
+   * the shadow of one of them is built.
+   */
+  private void invalidateIfShadowSourceChanged(boolean usedShadowAtlas) {
+    if (usesShadowAtlas() != usedShadowAtlas) {
+      mDirty = true;
+      invalidateSelf();
+    }
+  }
+
   float getMaxShadowSize() {
     return mRawMaxShadowSize;
   }
 
   float getMinWidth() {
-    final float calculateMaxShadowSize = (SHADOW_OFFSET + mCornerRadius.getMaxRadius() + mInsetShadow + mRawMaxShadowSize / 2);
-    final float content = 2 * Math.max(mRawMaxShadowSize, calculateMaxShadowSize);
-    return content + (mRawMaxShadowSize + mInsetShadow) * 2;
+    return ShadowGeometry.calculateMinWidth(mCornerRadius.getMaxRadius(), mInsetShadow, mRawMaxShadowSize);
   }
 
   float getMinHeight() {
-    final float calculateMaxShadowSize = (mCornerRadius.getMaxRadius() + mInsetShadow + mRawMaxShadowSize * SHADOW_MULTIPLIER / 2);
-    final float content = Math.max(mRawMaxShadowSize, calculateMaxShadowSize);
-    return content + (mRawMaxShadowSize * SHADOW_MULTIPLIER + mInsetShadow) * 2;
+    return ShadowGeometry.calculateMinHeight(mCornerRadius.getMaxRadius(), mInsetShadow, mRawMaxShadowSize);
   }
 
   void setShadowStartColor(int color) {
@@ -365,6 +1093,7 @@ class RoundRectDrawableWithShadow extends Drawable {
 
   void setColor(@Nullable ColorStateList color) {
     setBackground(color);
+    updateCardDrawableColor();
     invalidateSelf();
   }
 
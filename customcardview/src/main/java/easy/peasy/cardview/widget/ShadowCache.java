@@ -0,0 +1,604 @@
+package easy.peasy.cardview.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RadialGradient;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of pre-rendered shadow atlases.
+ * <p>
+ * Cards which share corner radii, shadow size and shadow colors reuse one atlas holding a corner
+ * tile per distinct radius and an edge strip, so drawing a shadow costs a few bitmap draws instead
+ * of a path and two gradients per corner. The cache is bounded by the byte count of its bitmaps
+ * and evicts the least recently used atlases first.
+ * <p>
+ * Shadows whose start and end colors share one hue, like the default black shadow, are rendered
+ * as alpha masks which are tinted with the shadow color when drawn. They take a quarter of the
+ * memory and are shared by every hue with the same alphas.
+ */
+public final class ShadowCache {
+
+  private static final int DEFAULT_MAX_SIZE_BYTES = 2 * 1024 * 1024;
+
+  /**
+   * Number of identical columns of the edge strip. Only the middle one is sampled, so bitmap
+   * filtering never blends the strip with its neighbours when it is stretched.
+   */
+  private static final int EDGE_STRIP_COLUMNS = 3;
+
+  private static final LruCache<Key, Atlas> sCache = new LruCache<Key, Atlas>(DEFAULT_MAX_SIZE_BYTES) {
+    @Override
+    protected int sizeOf(Key key, Atlas value) {
+      return value.getByteCount();
+    }
+  };
+
+  /**
+   * Maximum number of render jobs waiting for the background thread. When a fling requests more,
+   * the oldest waiting jobs are dropped, as their cards are most likely off screen already.
+   */
+  private static final int MAX_PENDING_JOBS = 8;
+
+  /**
+   * Maximum number of prefetches waiting for or running on the background thread. When more are
+   * started, the oldest are cancelled, as their animations are most likely over already.
+   */
+  private static final int MAX_PENDING_PREFETCHES = 2;
+
+  /**
+   * Maximum number of atlases rendered by one prefetch. Frames of longer animations past the limit
+   * are rendered when they are drawn.
+   */
+  static final int MAX_PREFETCH_KEYS = 16;
+
+  private static final Object sLock = new Object();
+
+  // guarded by sLock
+  private static final Map<Key, Job> sJobs = new HashMap<>();
+
+  // guarded by sLock, jobs not started yet, oldest first
+  private static final ArrayDeque<Job> sPendingJobs = new ArrayDeque<>();
+
+  // guarded by sLock, prefetches not finished yet, oldest first
+  private static final ArrayDeque<Prefetch> sPendingPrefetches = new ArrayDeque<>();
+
+  private static ThreadPoolExecutor sExecutor;
+
+  private static Handler sMainHandler;
+
+  // Lookups of cards only, guarded by sLock. The render jobs and prefetches look the atlases up
+  // again on the background thread, which would count a single render as several misses.
+  private static int sHitCount;
+
+  private static int sMissCount;
+
+  private ShadowCache() {
+  }
+
+  private static boolean isEmpty(Key key) {
+    return key.mShadowSize <= 0;
+  }
+
+  /**
+   * Returns the atlas for the given shadow parameters if it is cached, without rendering it.
+   */
+  @Nullable
+  static Atlas get(Key key) {
+    if (isEmpty(key)) {
+      return null;
+    }
+    final Atlas atlas = sCache.get(key);
+    countLookup(atlas != null);
+    return atlas;
+  }
+
+  /**
+   * Returns the atlas for the given shadow parameters, rendering it on a miss.
+   * Returns null if the shadow is empty.
+   * <p>
+   * The key may be reused by the caller, a copy is stored on a miss, so a hit does not allocate.
+   */
+  @Nullable
+  static Atlas obtain(Key key) {
+    if (isEmpty(key)) {
+      return null;
+    }
+    Atlas atlas = sCache.get(key);
+    countLookup(atlas != null);
+    if (atlas == null) {
+      Key storedKey = key.copy();
+      atlas = render(storedKey);
+      sCache.put(storedKey, atlas);
+    }
+    return atlas;
+  }
+
+  /**
+   * Renders the atlas for the given shadow parameters on a background thread. The callback is
+   * invoked on the main thread, unless the request is cancelled before. Requests for the same
+   * parameters share one render job. Returns null if the shadow is empty.
+   */
+  @Nullable
+  @MainThread
+  static Request requestAsync(Key key, Callback callback) {
+    if (isEmpty(key)) {
+      return null;
+    }
+    Job dropped = null;
+    boolean created = false;
+    Request request;
+    synchronized (sLock) {
+      Job job = sJobs.get(key);
+      if (job == null) {
+        created = true;
+        job = new Job(key.copy());
+        sJobs.put(job.mKey, job);
+        if (sPendingJobs.size() >= MAX_PENDING_JOBS) {
+          dropped = sPendingJobs.pollFirst();
+          sJobs.remove(dropped.mKey);
+        }
+        sPendingJobs.addLast(job);
+      }
+      request = new Request(job, callback);
+      job.mRequests.add(request);
+      if (dropped != null) {
+        getExecutor().remove(dropped);
+      }
+      if (created) {
+        getExecutor().execute(job);
+      }
+    }
+    if (dropped != null) {
+      deliver(dropped, null);
+    }
+    return request;
+  }
+
+  /**
+   * Renders the atlases missing from the cache on the background thread, in the given order, e.g.
+   * the frames of an animation. Only the first {@link #MAX_PREFETCH_KEYS} keys are rendered. The
+   * keys are stored as given, so they must not be reused.
+   *
+   * @return The prefetch, to cancel it when its atlases are no longer needed
+   */
+  @NonNull
+  static Prefetch prefetchAsync(Key[] keys) {
+    final Prefetch prefetch = new Prefetch(keys);
+    synchronized (sLock) {
+      if (sPendingPrefetches.size() >= MAX_PENDING_PREFETCHES) {
+        final Prefetch dropped = sPendingPrefetches.pollFirst();
+        dropped.mCancelled = true;
+        getExecutor().remove(dropped);
+      }
+      sPendingPrefetches.addLast(prefetch);
+      getExecutor().execute(prefetch);
+    }
+    return prefetch;
+  }
+
+  private static void countLookup(boolean hit) {
+    synchronized (sLock) {
+      if (hit) {
+        sHitCount++;
+      } else {
+        sMissCount++;
+      }
+    }
+  }
+
+  @MainThread
+  private static void cancel(Request request) {
+    request.mCancelled = true;
+    synchronized (sLock) {
+      Job job = request.mJob;
+      job.mRequests.remove(request);
+      if (job.mRequests.isEmpty() && sPendingJobs.remove(job)) {
+        sJobs.remove(job.mKey);
+        getExecutor().remove(job);
+      }
+    }
+  }
+
+  private static void deliver(Job job, @Nullable final Atlas atlas) {
+    final List<Request> requests;
+    synchronized (sLock) {
+      requests = new ArrayList<>(job.mRequests);
+      job.mRequests.clear();
+    }
+    getMainHandler().post(new Runnable() {
+      @Override
+      public void run() {
+        for (Request request : requests) {
+          if (!request.mCancelled) {
+            request.mCallback.onAtlasReady(atlas);
+          }
+        }
+      }
+    });
+  }
+
+  private static ThreadPoolExecutor getExecutor() {
+    synchronized (sLock) {
+      if (sExecutor == null) {
+        // Render jobs are bounded by MAX_PENDING_JOBS in requestAsync() and prefetches by
+        // MAX_PENDING_PREFETCHES in prefetchAsync()
+        sExecutor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        sExecutor.allowCoreThreadTimeOut(true);
+      }
+      return sExecutor;
+    }
+  }
+
+  private static Handler getMainHandler() {
+    synchronized (sLock) {
+      if (sMainHandler == null) {
+        sMainHandler = new Handler(Looper.getMainLooper());
+      }
+      return sMainHandler;
+    }
+  }
+
+  private static Atlas render(Key key) {
+    final CornerRadius cornerRadius = key.mCornerRadius;
+    final float shadowSize = key.mShadowSize;
+    final int edgeHeight = (int) Math.ceil(2 * shadowSize);
+    final int[] colors = new int[]{key.mStartColor, key.mStartColor, key.mEndColor};
+    final Bitmap.Config config = key.isAlphaMask() ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888;
+
+    // A corner tile per distinct radius, followed by the edge strip. The tiles and the strip are
+    // separated by transparent gap columns.
+    final Rect[] cornerBounds = new Rect[CornerRadius.COUNT_RADII];
+    int left = 0;
+    int height = edgeHeight;
+    for (int corner = 0; corner < CornerRadius.COUNT_RADII; corner++) {
+      cornerBounds[corner] = findCornerBounds(cornerRadius, corner, cornerBounds);
+      if (cornerBounds[corner] == null) {
+        final int cornerSize = (int) Math.ceil(cornerRadius.getRadius(corner) + shadowSize);
+        cornerBounds[corner] = new Rect(left, 0, left + cornerSize, cornerSize);
+        left += cornerSize + 1;
+        height = Math.max(height, cornerSize);
+      }
+    }
+    final int edgeLeft = left;
+    final Rect edgeBounds = new Rect(edgeLeft + EDGE_STRIP_COLUMNS / 2, 0, edgeLeft + EDGE_STRIP_COLUMNS / 2 + 1, edgeHeight);
+    Bitmap bitmap = Bitmap.createBitmap(edgeLeft + EDGE_STRIP_COLUMNS, height, config);
+    Canvas canvas = new Canvas(bitmap);
+
+    Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
+    paint.setStyle(Paint.Style.FILL);
+    Path path = new Path();
+    RectF innerBounds = new RectF();
+    RectF outerBounds = new RectF();
+    for (int corner = 0; corner < CornerRadius.COUNT_RADII; corner++) {
+      if (findCornerBounds(cornerRadius, corner, cornerBounds) != null) {
+        // shared with a previous corner
+        continue;
+      }
+      // Corner: a quarter ring between the inner and outer arc, centered at the bottom-right
+      // of the tile.
+      final float radius = cornerRadius.getRadius(corner);
+      final Rect tile = cornerBounds[corner];
+      int saved = canvas.save();
+      canvas.translate(tile.right, tile.bottom);
+      innerBounds.set(-radius, -radius, radius, radius);
+      outerBounds.set(innerBounds);
+      outerBounds.inset(-shadowSize, -shadowSize);
+      path.reset();
+      path.setFillType(Path.FillType.EVEN_ODD);
+      path.moveTo(-radius, 0);
+      path.rLineTo(-shadowSize, 0);
+      // outer arc
+      path.arcTo(outerBounds, 180f, 90f, false);
+      // inner arc
+      path.arcTo(innerBounds, 270f, -90f, false);
+      path.close();
+      float startRatio = radius / (radius + shadowSize);
+      paint.setShader(new RadialGradient(0, 0, radius + shadowSize, colors, new float[]{0f, startRatio, 1f}, Shader.TileMode.CLAMP));
+      canvas.drawPath(path, paint);
+      canvas.restoreToCount(saved);
+    }
+
+    // Edge: the top row is the outermost shadow pixel. It is stretched horizontally to the edge
+    // length when drawn.
+    paint.setAntiAlias(false);
+    paint.setShader(new LinearGradient(0, edgeHeight, 0, 0, colors, new float[]{0f, .5f, 1f}, Shader.TileMode.CLAMP));
+    canvas.drawRect(edgeLeft, 0, edgeLeft + EDGE_STRIP_COLUMNS, edgeHeight, paint);
+    canvas.setBitmap(null);
+
+    return new Atlas(bitmap, cornerBounds, edgeBounds);
+  }
+
+  /**
+   * Returns the tile of a previous corner with the same radius, or null if there is none.
+   */
+  @Nullable
+  private static Rect findCornerBounds(CornerRadius cornerRadius, int corner, Rect[] cornerBounds) {
+    for (int previous = 0; previous < corner; previous++) {
+      if (cornerRadius.getRadius(previous) == cornerRadius.getRadius(corner)) {
+        return cornerBounds[previous];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of times a card found its shadow in the cache.
+   */
+  public static int getHitCount() {
+    synchronized (sLock) {
+      return sHitCount;
+    }
+  }
+
+  /**
+   * Returns the number of times a card did not find its shadow in the cache, so it had to be
+   * rendered. Shadows rendered ahead of an animation are not counted.
+   */
+  public static int getMissCount() {
+    synchronized (sLock) {
+      return sMissCount;
+    }
+  }
+
+  /**
+   * Returns the number of shadows evicted to stay within the byte budget.
+   */
+  public static int getEvictionCount() {
+    return sCache.evictionCount();
+  }
+
+  /**
+   * Returns the number of bytes held by the cached shadows.
+   */
+  public static int getSize() {
+    return sCache.size();
+  }
+
+  /**
+   * Returns the byte budget of the cache.
+   */
+  public static int getMaxSize() {
+    return sCache.maxSize();
+  }
+
+  /**
+   * Updates the byte budget of the cache, evicting shadows if needed.
+   *
+   * @param maxSizeBytes The new budget in bytes, must be > 0
+   */
+  public static void setMaxSize(int maxSizeBytes) {
+    if (maxSizeBytes <= 0) {
+      throw new IllegalArgumentException("Invalid max size " + maxSizeBytes + ". Must be > 0");
+    }
+    sCache.resize(maxSizeBytes);
+  }
+
+  /**
+   * Drops all cached shadows. Shadows in use by cards stay alive until the cards rebuild them.
+   */
+  public static void clear() {
+    sCache.evictAll();
+  }
+
+  interface Callback {
+
+    /**
+     * Called on the main thread with the rendered atlas, or with null if the render job was
+     * dropped to stay within the pending job limit.
+     */
+    void onAtlasReady(@Nullable Atlas atlas);
+  }
+
+  static final class Request {
+
+    final Job mJob;
+
+    final Callback mCallback;
+
+    // only accessed on the main thread
+    boolean mCancelled;
+
+    Request(Job job, Callback callback) {
+      mJob = job;
+      mCallback = callback;
+    }
+
+    /**
+     * Cancels the request, its callback will not be invoked. The render job is cancelled too if
+     * it has no other requests and did not start yet.
+     */
+    @MainThread
+    void cancel() {
+      ShadowCache.cancel(this);
+    }
+  }
+
+  static final class Prefetch implements Runnable {
+
+    final Key[] mKeys;
+
+    // checked between the atlases, so a cancelled prefetch stops after the one being rendered
+    volatile boolean mCancelled;
+
+    Prefetch(Key[] keys) {
+      mKeys = keys;
+    }
+
+    /**
+     * Cancels the prefetch. The atlases rendered so far stay cached.
+     */
+    void cancel() {
+      mCancelled = true;
+      synchronized (sLock) {
+        if (sPendingPrefetches.remove(this)) {
+          getExecutor().remove(this);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      for (int i = 0, count = Math.min(mKeys.length, MAX_PREFETCH_KEYS); i < count && !mCancelled; i++) {
+        final Key key = mKeys[i];
+        if (!isEmpty(key) && sCache.get(key) == null) {
+          sCache.put(key, render(key));
+        }
+      }
+      synchronized (sLock) {
+        sPendingPrefetches.remove(this);
+      }
+    }
+  }
+
+  private static final class Job implements Runnable {
+
+    final Key mKey;
+
+    // guarded by sLock
+    final List<Request> mRequests = new ArrayList<>();
+
+    Job(Key key) {
+      mKey = key;
+    }
+
+    @Override
+    public void run() {
+      synchronized (sLock) {
+        if (!sPendingJobs.remove(this)) {
+          // cancelled or dropped
+          return;
+        }
+      }
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      // may have been rendered by prefetchAsync() meanwhile, the miss was counted by the card
+      Atlas atlas = sCache.get(mKey);
+      if (atlas == null) {
+        atlas = render(mKey);
+        sCache.put(mKey, atlas);
+      }
+      synchronized (sLock) {
+        sJobs.remove(mKey);
+      }
+      deliver(this, atlas);
+    }
+  }
+
+  static final class Atlas {
+
+    @NonNull
+    final Bitmap mBitmap;
+
+    /**
+     * Top-left quarter of the shadow ring per corner, ordered like {@link CornerRadius}. The
+     * corner center is the bottom-right pixel of a tile. Corners with the same radius share a
+     * tile.
+     */
+    @NonNull
+    final Rect[] mCornerBounds;
+
+    /**
+     * Edge strip, 1px wide and twice the shadow size high.
+     */
+    @NonNull
+    final Rect mEdgeBounds;
+
+    Atlas(@NonNull Bitmap bitmap, @NonNull Rect[] cornerBounds, @NonNull Rect edgeBounds) {
+      mBitmap = bitmap;
+      mCornerBounds = cornerBounds;
+      mEdgeBounds = edgeBounds;
+    }
+
+    int getByteCount() {
+      return mBitmap.getByteCount();
+    }
+  }
+
+  static final class Key {
+
+    private static final int RGB_MASK = 0x00FFFFFF;
+
+    // interned, so it is compared by identity
+    CornerRadius mCornerRadius;
+
+    float mShadowSize;
+
+    int mInsetShadow;
+
+    int mStartColor;
+
+    int mEndColor;
+
+    Key copy() {
+      Key key = new Key();
+      key.set(mCornerRadius, mShadowSize, mInsetShadow, mStartColor, mEndColor);
+      return key;
+    }
+
+    void set(CornerRadius cornerRadius, float shadowSize, int insetShadow, int startColor, int endColor) {
+      mCornerRadius = cornerRadius;
+      mShadowSize = shadowSize;
+      mInsetShadow = insetShadow;
+      if ((startColor & RGB_MASK) == (endColor & RGB_MASK)) {
+        // a single hue only needs the alphas, the hue is applied when drawing
+        mStartColor = startColor & ~RGB_MASK;
+        mEndColor = endColor & ~RGB_MASK;
+      } else {
+        mStartColor = startColor;
+        mEndColor = endColor;
+      }
+    }
+
+    boolean isAlphaMask() {
+      return ((mStartColor | mEndColor) & RGB_MASK) == 0;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (this == obj) {
+        return true;
+      } else if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return mCornerRadius == other.mCornerRadius
+        && mShadowSize == other.mShadowSize
+        && mInsetShadow == other.mInsetShadow
+        && mStartColor == other.mStartColor
+        && mEndColor == other.mEndColor;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = mCornerRadius.hashCode();
+      result = 31 * result + Float.floatToIntBits(mShadowSize);
+      result = 31 * result + mInsetShadow;
+      result = 31 * result + mStartColor;
+      result = 31 * result + mEndColor;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package easy.peasy.cardview.widget;
+
+/**
+ * Shadow layout math of {@link RoundRectDrawableWithShadow}.
+ * <p>
+ * Kept free of Android dependencies so it can be benchmarked on a plain JVM.
+ */
+final class ShadowGeometry {
+
+  static final float SHADOW_MULTIPLIER = 1.5f;
+
+  static final int SHADOW_OFFSET = 25;
+
+  private ShadowGeometry() {
+  }
+
+  /**
+   * Casts the value to an even integer.
+   */
+  static int toEven(float value) {
+    int i = (int) (value + .5f);
+    if (i % 2 == 1) {
+      return i - 1;
+    }
+    return i;
+  }
+
+  /**
+   * Returns the shadow size multiplied to account for the shadow offset.
+   */
+  static int calculateShadowSize(float rawShadowSize, int insetShadow) {
+    return (int) (rawShadowSize * SHADOW_MULTIPLIER + insetShadow + .5f);
+  }
+
+  static float calculateVerticalPadding(float maxShadowSize) {
+    return maxShadowSize * SHADOW_MULTIPLIER;
+  }
+
+  /**
+   * Returns the distance of the corner shadow center from the card bounds.
+   */
+  static float calculateCornerInset(float radius, int insetShadow, float rawShadowSize) {
+    return radius + insetShadow + rawShadowSize / 2;
+  }
+
+  /**
+   * Returns the length of an edge shadow between the shadows of two corners, not positive if there
+   * is no room for it.
+   *
+   * @param sideLength The length of the side of the card
+   * @param offset     The offset of both corner shadows towards the middle of the side
+   */
+  static float calculateEdgeLength(float sideLength, float startCornerInset, float endCornerInset, float offset) {
+    return -2 * offset + sideLength - startCornerInset - endCornerInset;
+  }
+
+  static float calculateMinWidth(float maxRadius, int insetShadow, float rawMaxShadowSize) {
+    final float calculateMaxShadowSize = (SHADOW_OFFSET + maxRadius + insetShadow + rawMaxShadowSize / 2);
+    final float content = 2 * Math.max(rawMaxShadowSize, calculateMaxShadowSize);
+    return content + (rawMaxShadowSize + insetShadow) * 2;
+  }
+
+  static float calculateMinHeight(float maxRadius, int insetShadow, float rawMaxShadowSize) {
+    final float calculateMaxShadowSize = (maxRadius + insetShadow + rawMaxShadowSize * SHADOW_MULTIPLIER / 2);
+    final float content = Math.max(rawMaxShadowSize, calculateMaxShadowSize);
+    return content + (rawMaxShadowSize * SHADOW_MULTIPLIER + insetShadow) * 2;
+  }
+}
@@ -0,0 +1,78 @@
+package easy.peasy.cardview.widget;
+
+import android.graphics.LinearGradient;
+import android.graphics.RadialGradient;
+import android.graphics.Shader;
+import android.util.LruCache;
+
+/**
+ * Shadow gradients of one shadow color pair, created at unit size and shared by every card.
+ * <p>
+ * The corner gradient is centered at the origin with radius 1, the edge gradient runs from y = 1
+ * to y = -1. Cards draw them in a canvas scaled to their shadow size. The shaders are never
+ * modified, e.g. with a local matrix, so they keep their native instance however many cards of
+ * different sizes draw them. The corner gradient also depends on the ratio of the corner radius
+ * to the shadow radius, which is quantized to {@link #RATIO_STEPS} steps.
+ */
+final class ShadowShaders {
+
+  /**
+   * Steps of the ratio of the corner radius to the shadow radius. The start of a corner gradient
+   * moves by at most half a step, which stays below a quarter pixel for shadow radii up to 512px.
+   * The gradients of a step are created on first use, so only the ratios in use cost a shader.
+   */
+  private static final int RATIO_STEPS = 1024;
+
+  private static final int MAX_COLOR_PAIRS = 16;
+
+  private static final LruCache<Long, ShadowShaders> sCache = new LruCache<>(MAX_COLOR_PAIRS);
+
+  private final int mStartColor;
+
+  private final int mEndColor;
+
+  private final int[] mColors;
+
+  private final LinearGradient mEdgeShader;
+
+  private final RadialGradient[] mCornerShaders = new RadialGradient[RATIO_STEPS + 1];
+
+  private ShadowShaders(int startColor, int endColor) {
+    mStartColor = startColor;
+    mEndColor = endColor;
+    mColors = new int[]{startColor, startColor, endColor};
+    mEdgeShader = new LinearGradient(0, 1, 0, -1, mColors, new float[]{0f, .5f, 1f}, Shader.TileMode.CLAMP);
+  }
+
+  static ShadowShaders obtain(int startColor, int endColor) {
+    Long key = ((long) startColor << 32) | (endColor & 0xFFFFFFFFL);
+    ShadowShaders shaders = sCache.get(key);
+    if (shaders == null) {
+      shaders = new ShadowShaders(startColor, endColor);
+      sCache.put(key, shaders);
+    }
+    return shaders;
+  }
+
+  boolean matches(int startColor, int endColor) {
+    return mStartColor == startColor && mEndColor == endColor;
+  }
+
+  LinearGradient getEdgeShader() {
+    return mEdgeShader;
+  }
+
+  /**
+   * Returns the corner gradient which stays at the start color up to {@code startRatio}.
+   * Gradients are created on first use of a ratio step.
+   */
+  synchronized RadialGradient getCornerShader(float startRatio) {
+    int step = Math.round(startRatio * RATIO_STEPS);
+    RadialGradient shader = mCornerShaders[step];
+    if (shader == null) {
+      shader = new RadialGradient(0, 0, 1, mColors, new float[]{0f, (float) step / RATIO_STEPS, 1f}, Shader.TileMode.CLAMP);
+      mCornerShaders[step] = shader;
+    }
+    return shader;
+  }
+}
@@ -0,0 +1,110 @@
+package easy.peasy.cardview.widget;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import easy.peasy.cardview.R;
+
+import java.util.ArrayList;
+
+/**
+ * Frame clock of the skeleton shimmer, see {@link CardView#setSkeleton(boolean)}.
+ * <p>
+ * All skeleton cards share one gradient and one phase advanced once per frame, so a screen full of
+ * placeholder cards costs one frame callback instead of an animator per card. The highlight band
+ * sweeps across the width of each card, so cards of the same width shimmer in step. The clock only
+ * runs while skeleton cards are attached.
+ */
+@MainThread
+final class ShimmerClock implements Choreographer.FrameCallback {
+
+  private static final long PERIOD_NANOS = 1_200_000_000L;
+
+  // width of the highlight band relative to the width of the card
+  private static final float BAND_RATIO = .4f;
+
+  @Nullable
+  private static ShimmerClock sInstance;
+
+  private final ArrayList<CardView> mCards = new ArrayList<>();
+
+  private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+  // position of the band in its sweep, from 0 to 1
+  private float mPhase;
+
+  private boolean mRunning;
+
+  static ShimmerClock getInstance(Context context) {
+    if (sInstance == null) {
+      sInstance = new ShimmerClock(context.getApplicationContext().getResources());
+    }
+    return sInstance;
+  }
+
+  private ShimmerClock(Resources resources) {
+    final int color = resources.getColor(R.color.cardview_skeleton_color);
+    final int highlightColor = resources.getColor(R.color.cardview_skeleton_highlight_color);
+    // Unit gradient, scaled to the band with the canvas. The shader is shared, a local matrix
+    // changed every frame would recreate its native instance.
+    mPaint.setShader(new LinearGradient(0, 0, 1, 0, new int[]{color, highlightColor, color}, null, Shader.TileMode.CLAMP));
+    update(System.nanoTime());
+  }
+
+  /**
+   * Draws the shimmer of a card into the clip of the canvas, in the coordinates of the card.
+   *
+   * @param width The width of the card, which the band sweeps across
+   */
+  void draw(Canvas canvas, int width) {
+    if (width <= 0) {
+      return;
+    }
+    final float bandWidth = width * BAND_RATIO;
+    final int saved = canvas.save();
+    // the band enters at the left edge and leaves past the right edge of the card
+    canvas.translate(-bandWidth + mPhase * (width + bandWidth), 0);
+    canvas.scale(bandWidth, 1f);
+    canvas.drawPaint(mPaint);
+    canvas.restoreToCount(saved);
+  }
+
+  void register(CardView card) {
+    if (mCards.contains(card)) {
+      return;
+    }
+    mCards.add(card);
+    if (!mRunning) {
+      mRunning = true;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+
+  void unregister(CardView card) {
+    mCards.remove(card);
+    if (mCards.isEmpty() && mRunning) {
+      mRunning = false;
+      Choreographer.getInstance().removeFrameCallback(this);
+    }
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    update(frameTimeNanos);
+    for (int i = 0, count = mCards.size(); i < count; i++) {
+      mCards.get(i).invalidate();
+    }
+    Choreographer.getInstance().postFrameCallback(this);
+  }
+
+  private void update(long timeNanos) {
+    mPhase = (float) (timeNanos % PERIOD_NANOS) / PERIOD_NANOS;
+  }
+}
@@ -0,0 +1,75 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assume.assumeTrue;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes allocated on the heap by the current thread.
+ */
+final class Allocations {
+
+  private static final ThreadMXBean sThreadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  // bytes allocated by reading the counter twice, subtracted from every measurement
+  private static long sOverhead = -1;
+
+  private Allocations() {
+  }
+
+  /**
+   * Skips the calling test if the JVM does not count allocations.
+   */
+  static void assumeSupported() {
+    assumeTrue("Allocations are not counted by this JVM", sThreadBean.isThreadAllocatedMemorySupported());
+    sThreadBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  static long allocatedBytes() {
+    return sThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Returns the bytes allocated while running the runnable once.
+   */
+  static long measure(Runnable runnable) {
+    final long overhead = getOverhead();
+    final long start = allocatedBytes();
+    runnable.run();
+    final long end = allocatedBytes();
+    return Math.max(0, end - start - overhead);
+  }
+
+  /**
+   * Returns the bytes allocated per run after warming up, rounded up so that a single allocation
+   * in any run is reported.
+   */
+  static long measurePerRun(int warmUpRuns, int runs, Runnable runnable) {
+    for (int i = 0; i < warmUpRuns; i++) {
+      runnable.run();
+    }
+    final long overhead = getOverhead();
+    final long start = allocatedBytes();
+    for (int i = 0; i < runs; i++) {
+      runnable.run();
+    }
+    final long end = allocatedBytes();
+    final long bytes = Math.max(0, end - start - overhead);
+    return (bytes + runs - 1) / runs;
+  }
+
+  private static long getOverhead() {
+    if (sOverhead < 0) {
+      long overhead = Long.MAX_VALUE;
+      for (int i = 0; i < 16; i++) {
+        final long start = allocatedBytes();
+        final long end = allocatedBytes();
+        overhead = Math.min(overhead, end - start);
+      }
+      sOverhead = overhead;
+    }
+    return sOverhead;
+  }
+}
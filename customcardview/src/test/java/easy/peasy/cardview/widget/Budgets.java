@@ -0,0 +1,49 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Budgets of the regression tests, checked in as {@value #FILE} next to the tests.
+ * <p>
+ * A test fails when a measured value exceeds its budget, so a regression fails the build. A budget
+ * is only raised together with the change which needs it.
+ */
+final class Budgets {
+
+  private static final String FILE = "budgets.properties";
+
+  private static Properties sBudgets;
+
+  private Budgets() {
+  }
+
+  static long get(String name) {
+    final String budget = load().getProperty(name);
+    assertNotNull("No budget " + name + " in " + FILE, budget);
+    return Long.parseLong(budget.trim());
+  }
+
+  static void assertWithin(String name, long value) {
+    final long budget = get(name);
+    assertTrue(name + " is " + value + ", over its budget of " + budget + " in " + FILE, value <= budget);
+  }
+
+  private static synchronized Properties load() {
+    if (sBudgets == null) {
+      final Properties budgets = new Properties();
+      try (InputStream in = Budgets.class.getResourceAsStream(FILE)) {
+        assertNotNull("Missing " + FILE, in);
+        budgets.load(in);
+      } catch (IOException e) {
+        throw new AssertionError("Unable to read " + FILE, e);
+      }
+      sBudgets = budgets;
+    }
+    return sBudgets;
+  }
+}
@@ -0,0 +1,117 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * Records the pixels painted by a card whose body is covered by an opaque child, which skips
+ * drawing the body, against a card whose child is translucent, and checks the opacity reported by
+ * the background.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class CardOverdrawTest {
+
+  private static final int WIDTH = 240;
+
+  private static final int HEIGHT = 160;
+
+  private Context mContext;
+
+  @Before
+  public void setUp() {
+    mContext = ApplicationProvider.getApplicationContext();
+    ShadowCache.clear();
+  }
+
+  @Test
+  public void opaqueChild_bodyIsNotPainted() {
+    final CardView covered = createCard(8f, 4f, Color.WHITE);
+    final View opaqueChild = addChild(covered, Color.BLUE);
+    final CardView uncovered = createCard(8f, 4f, Color.WHITE);
+    final View translucentChild = addChild(uncovered, 0xFE0000FF);
+
+    final long coveredPixels = draw(covered);
+    final long uncoveredPixels = draw(uncovered);
+
+    // the body is as large as the child, which covers it
+    final long bodyPixels = (long) opaqueChild.getWidth() * opaqueChild.getHeight();
+    assertEquals(bodyPixels, (long) translucentChild.getWidth() * translucentChild.getHeight());
+    assertTrue("Painted " + coveredPixels + " of " + uncoveredPixels + " pixels",
+      coveredPixels <= uncoveredPixels - bodyPixels);
+  }
+
+  @Test
+  public void opaqueSquareCard_isOpaque() {
+    final CardView card = createCard(0f, 0f, Color.WHITE);
+    layout(card);
+
+    assertEquals(PixelFormat.OPAQUE, card.getShadowBackground().getOpacity());
+  }
+
+  @Test
+  public void roundedCard_isTranslucent() {
+    final CardView card = createCard(8f, 0f, Color.WHITE);
+    layout(card);
+
+    assertEquals(PixelFormat.TRANSLUCENT, card.getShadowBackground().getOpacity());
+  }
+
+  @Test
+  public void translucentSquareCard_isTranslucent() {
+    final CardView card = createCard(0f, 0f, 0x80FFFFFF);
+    layout(card);
+
+    assertEquals(PixelFormat.TRANSLUCENT, card.getShadowBackground().getOpacity());
+  }
+
+  private CardView createCard(float radius, float elevation, int color) {
+    final CardViewSpec spec = new CardViewSpec.Builder(mContext)
+      .setRadius(radius)
+      .setCardElevation(elevation)
+      .setMaxCardElevation(elevation)
+      .setCardBackgroundColor(color)
+      .setShadowImplementation(CardView.SHADOW_IMPLEMENTATION_COMPAT)
+      .build();
+    return new CardView(mContext, spec);
+  }
+
+  private View addChild(CardView card, int color) {
+    final View child = new View(mContext);
+    child.setBackgroundColor(color);
+    card.addView(child, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+    return child;
+  }
+
+  private static void layout(CardView card) {
+    card.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+      View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+    card.layout(0, 0, WIDTH, HEIGHT);
+  }
+
+  /**
+   * Returns the pixels painted by the card and its child.
+   */
+  private static long draw(CardView card) {
+    layout(card);
+    final PaintedAreaCanvas canvas = new PaintedAreaCanvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    card.draw(canvas);
+    return canvas.mPaintedPixels;
+  }
+}
@@ -0,0 +1,151 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * Counts the draw calls of the shadows of a list drawn by {@link CardShadowItemDecoration} against
+ * the shadows drawn by every card itself, and checks that the decoration keeps the alpha of the
+ * cards.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class CardShadowItemDecorationTest {
+
+  private static final int WIDTH = 480;
+
+  private static final int HEIGHT = 800;
+
+  private static final int CARD_HEIGHT = 80;
+
+  // elevation per item, items are bound in turn, so the shadows of neighbouring cards differ
+  private static final float[] ELEVATIONS = {2f, 4f, 6f};
+
+  private Context mContext;
+
+  @Before
+  public void setUp() {
+    mContext = ApplicationProvider.getApplicationContext();
+    ShadowCache.clear();
+  }
+
+  @Test
+  public void decoration_drawsSameShadowsWithFewerSwitches() {
+    final CountingCanvas perView = draw(false);
+    final CountingCanvas decorated = draw(true);
+
+    assertTrue("No shadow drawn", perView.mBitmapDraws > 0);
+    assertEquals(perView.mBitmapDraws, decorated.mBitmapDraws);
+    // one switch per atlas instead of one per card
+    assertEquals(ELEVATIONS.length, decorated.mStateSwitches);
+    assertTrue(perView.mStateSwitches >= HEIGHT / CARD_HEIGHT);
+  }
+
+  @Test
+  public void translucentCards_drawTranslucentAtlasShadows() {
+    assertHalfAlpha(CardView.SHADOW_RENDER_MODE_ATLAS);
+  }
+
+  @Test
+  public void translucentCards_drawTranslucentGradientShadows() {
+    assertHalfAlpha(CardView.SHADOW_RENDER_MODE_GRADIENT);
+  }
+
+  private void assertHalfAlpha(@CardView.ShadowRenderMode int renderMode) {
+    final long opaque = sumAlpha(draw(true, new CardAdapter(renderMode, 1f)));
+    final long translucent = sumAlpha(draw(true, new CardAdapter(renderMode, .5f)));
+
+    assertTrue("No shadow drawn", opaque > 0);
+    // the shadow is drawn once at the alpha of the card, rounded per pixel
+    assertEquals(.5, (double) translucent / opaque, .05);
+  }
+
+  private static long sumAlpha(CountingCanvas canvas) {
+    final Bitmap bitmap = canvas.mBitmap;
+    long sum = 0;
+    for (int y = 0; y < bitmap.getHeight(); y++) {
+      for (int x = 0; x < bitmap.getWidth(); x++) {
+        sum += Color.alpha(bitmap.getPixel(x, y));
+      }
+    }
+    return sum;
+  }
+
+  private CountingCanvas draw(boolean decorated) {
+    return draw(decorated, new CardAdapter(CardView.SHADOW_RENDER_MODE_ATLAS, 1f));
+  }
+
+  private CountingCanvas draw(boolean decorated, CardAdapter adapter) {
+    final RecyclerView list = new RecyclerView(mContext);
+    list.setLayoutManager(new LinearLayoutManager(mContext));
+    list.setAdapter(adapter);
+    if (decorated) {
+      new CardShadowItemDecoration().attachToRecyclerView(list);
+    }
+    list.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+      View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+    list.layout(0, 0, WIDTH, HEIGHT);
+
+    final CountingCanvas canvas = new CountingCanvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    list.draw(canvas);
+    return canvas;
+  }
+
+  private static final class CardAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    @CardView.ShadowRenderMode
+    private final int mRenderMode;
+
+    private final float mAlpha;
+
+    CardAdapter(@CardView.ShadowRenderMode int renderMode, float alpha) {
+      mRenderMode = renderMode;
+      mAlpha = alpha;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+      final CardViewSpec spec = new CardViewSpec.Builder(parent.getContext())
+        .setRadius(8f)
+        .setMaxCardElevation(6f)
+        .setShadowImplementation(CardView.SHADOW_IMPLEMENTATION_COMPAT)
+        .build();
+      final CardView card = new CardView(parent.getContext(), spec);
+      card.setShadowRenderMode(mRenderMode);
+      card.setAlpha(mAlpha);
+      // only the shadows are drawn, so the pixels measure their alpha
+      card.setCardBackgroundColor(Color.TRANSPARENT);
+      card.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, CARD_HEIGHT));
+      return new RecyclerView.ViewHolder(card) {
+      };
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+      ((CardView) holder.itemView).setCardElevation(ELEVATIONS[position % ELEVATIONS.length]);
+    }
+
+    @Override
+    public int getItemCount() {
+      return 100;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * Counts the layout requests and background invalidations of a card to check that an
+ * {@link CardView.Editor} coalesces its changes into one of each, and draws the card to check that
+ * the changes reach the drawn card.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class CardViewEditorTest {
+
+  private static final int SIZE_SPEC = View.MeasureSpec.makeMeasureSpec(320, View.MeasureSpec.EXACTLY);
+
+  private LayoutCountingParent mParent;
+
+  private CountingCardView mCard;
+
+  @Before
+  public void setUp() {
+    final Context context = ApplicationProvider.getApplicationContext();
+    final CardViewSpec spec = new CardViewSpec.Builder(context)
+      .setRadius(8f)
+      .setCardElevation(2f)
+      .setMaxCardElevation(6f)
+      .setShadowImplementation(CardView.SHADOW_IMPLEMENTATION_COMPAT)
+      .build();
+    mParent = new LayoutCountingParent(context);
+    mCard = new CountingCardView(context, spec);
+    mParent.addView(mCard);
+    mCard.measure(SIZE_SPEC, SIZE_SPEC);
+    mCard.layout(0, 0, mCard.getMeasuredWidth(), mCard.getMeasuredHeight());
+    mParent.mLayoutRequests = 0;
+    mCard.mBackgroundInvalidations = 0;
+  }
+
+  @Test
+  public void apply_requestsOneLayoutAndInvalidation() {
+    mCard.edit()
+      .setRadii(new float[]{4f, 12f, 4f, 12f})
+      .setMaxCardElevation(12f)
+      .setCardElevation(8f)
+      .setContentPadding(2, 4, 6, 8)
+      .setCardShadowStartColor(0x44000000)
+      .setCardShadowEndColor(0x02000000)
+      .setCardBackgroundColor(Color.LTGRAY)
+      .apply();
+
+    assertEquals(1, mParent.mLayoutRequests);
+    assertEquals(1, mCard.mBackgroundInvalidations);
+  }
+
+  @Test
+  public void setters_requestLayoutsAndInvalidationsPerChange() {
+    // the same changes as above without an editor, the baseline the editor improves on
+    mCard.setRadii(new float[]{4f, 12f, 4f, 12f});
+    mCard.setMaxCardElevation(12f);
+    mCard.setCardElevation(8f);
+    mCard.setContentPadding(2, 4, 6, 8);
+    mCard.setCardShadowStartColor(0x44000000);
+    mCard.setCardShadowEndColor(0x02000000);
+    mCard.setCardBackgroundColor(Color.LTGRAY);
+
+    assertTrue(mParent.mLayoutRequests > 1);
+    assertTrue(mCard.mBackgroundInvalidations > 1);
+  }
+
+  @Test
+  public void applyTwice_requestsOneLayoutPerApply() {
+    final CardView.Editor editor = mCard.edit().setCardElevation(4f).setContentPadding(1, 1, 1, 1);
+
+    editor.apply();
+    editor.setRadius(6f).setMaxCardElevation(10f).apply();
+
+    assertEquals(2, mParent.mLayoutRequests);
+  }
+
+  @Test
+  public void apply_recolorsDrawnCard() {
+    mCard.edit().setCardBackgroundColor(Color.RED).apply();
+
+    assertEquals(Color.RED, drawCenterPixel());
+  }
+
+  @Test
+  public void setter_recolorsDrawnCard() {
+    mCard.setCardBackgroundColor(Color.BLUE);
+
+    assertEquals(Color.BLUE, drawCenterPixel());
+  }
+
+  @Test
+  public void apply_withoutChanges_requestsNothing() {
+    mCard.edit().apply();
+
+    assertEquals(0, mParent.mLayoutRequests);
+    assertEquals(0, mCard.mBackgroundInvalidations);
+  }
+
+  private int drawCenterPixel() {
+    final Bitmap bitmap = Bitmap.createBitmap(mCard.getWidth(), mCard.getHeight(), Bitmap.Config.ARGB_8888);
+    mCard.draw(new Canvas(bitmap));
+    return bitmap.getPixel(mCard.getWidth() / 2, mCard.getHeight() / 2);
+  }
+}
@@ -0,0 +1,148 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewOutlineProvider;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Checks the shadow implementation selected for a card, that both implementations reserve the
+ * same padding and minimum size, and how each clips the children to the corners.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CardViewImplTest {
+
+  private Context mContext;
+
+  @Before
+  public void setUp() {
+    mContext = ApplicationProvider.getApplicationContext();
+  }
+
+  @Test
+  @Config(sdk = 27)
+  public void auto_selectsCompatBeforePie() {
+    assertEquals(CardView.SHADOW_IMPLEMENTATION_COMPAT, createCard(CardView.SHADOW_IMPLEMENTATION_AUTO).getShadowImplementation());
+  }
+
+  @Test
+  @Config(sdk = 28)
+  public void auto_selectsPlatformFromPie() {
+    assertEquals(CardView.SHADOW_IMPLEMENTATION_PLATFORM, createCard(CardView.SHADOW_IMPLEMENTATION_AUTO).getShadowImplementation());
+  }
+
+  @Test
+  @Config(sdk = 28)
+  public void compat_overridesAuto() {
+    final CardView card = createCard(CardView.SHADOW_IMPLEMENTATION_COMPAT);
+
+    assertEquals(CardView.SHADOW_IMPLEMENTATION_COMPAT, card.getShadowImplementation());
+    assertEquals(0f, card.getElevation(), 0f);
+  }
+
+  @Test
+  @Config(sdk = 27)
+  public void platform_overridesAuto() {
+    final CardView card = createCard(CardView.SHADOW_IMPLEMENTATION_PLATFORM);
+
+    assertEquals(CardView.SHADOW_IMPLEMENTATION_PLATFORM, card.getShadowImplementation());
+    assertEquals(card.getCardElevation(), card.getElevation(), 0f);
+  }
+
+  @Test
+  public void platform_hasCompatPaddingAndMinimumSize() {
+    final CardView compat = createCard(CardView.SHADOW_IMPLEMENTATION_COMPAT);
+    final CardView platform = createCard(CardView.SHADOW_IMPLEMENTATION_PLATFORM);
+    assertSameLayout(compat, platform);
+
+    for (CardView card : new CardView[]{compat, platform}) {
+      card.setRadii(new float[]{4f, 20f, 8f, 0f});
+    }
+    assertSameLayout(compat, platform);
+
+    for (CardView card : new CardView[]{compat, platform}) {
+      card.setMaxCardElevation(18f);
+      card.setCardElevation(12f);
+    }
+    assertSameLayout(compat, platform);
+
+    for (CardView card : new CardView[]{compat, platform}) {
+      card.setShadowAllSides(true);
+      card.setContentPadding(3, 5, 7, 9);
+    }
+    assertSameLayout(compat, platform);
+
+    for (CardView card : new CardView[]{compat, platform}) {
+      card.edit().setRadius(30f).setMaxCardElevation(2f).apply();
+    }
+    assertSameLayout(compat, platform);
+  }
+
+  @Test
+  public void compat_clipsUniformRadiiToPath() {
+    // the compat shadow is drawn outside of the outline
+    final CardView card = createCard(CardView.SHADOW_IMPLEMENTATION_COMPAT);
+    card.setClipChildrenToCorners(true);
+
+    assertFalse(card.getClipToOutline());
+  }
+
+  @Test
+  public void platform_clipsUniformRadiiToOutline() {
+    final CardView card = createCard(CardView.SHADOW_IMPLEMENTATION_PLATFORM);
+    card.setClipChildrenToCorners(true);
+    assertTrue(card.getClipToOutline());
+
+    card.setRadii(new float[]{4f, 20f, 8f, 0f});
+    assertFalse(card.getClipToOutline());
+  }
+
+  @Test
+  public void clipDisabled_restoresOutlineProvider() {
+    final CardView card = createCard(CardView.SHADOW_IMPLEMENTATION_PLATFORM);
+    card.setOutlineProvider(ViewOutlineProvider.BOUNDS);
+
+    card.setClipChildrenToCorners(true);
+    card.setClipChildrenToCorners(false);
+
+    assertSame(ViewOutlineProvider.BOUNDS, card.getOutlineProvider());
+    assertFalse(card.getClipToOutline());
+  }
+
+  private CardView createCard(int implementation) {
+    final CardViewSpec spec = new CardViewSpec.Builder(mContext)
+      .setRadius(12f)
+      .setCardElevation(6f)
+      .setMaxCardElevation(10f)
+      .setShadowImplementation(implementation)
+      .build();
+    return new CardView(mContext, spec);
+  }
+
+  private static void assertSameLayout(CardView compat, CardView platform) {
+    assertEquals(compat.getPaddingLeft(), platform.getPaddingLeft());
+    assertEquals(compat.getPaddingTop(), platform.getPaddingTop());
+    assertEquals(compat.getPaddingRight(), platform.getPaddingRight());
+    assertEquals(compat.getPaddingBottom(), platform.getPaddingBottom());
+    assertEquals(compat.getMinimumWidth(), platform.getMinimumWidth());
+    assertEquals(compat.getMinimumHeight(), platform.getMinimumHeight());
+
+    final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    compat.measure(spec, spec);
+    platform.measure(spec, spec);
+    assertEquals(compat.getMeasuredWidth(), platform.getMeasuredWidth());
+    assertEquals(compat.getMeasuredHeight(), platform.getMeasuredHeight());
+  }
+}
@@ -0,0 +1,98 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Counts the measure passes of a child to check that a card reuses its last measure pass.
+ * <p>
+ * The child requests a layout before every scenario, so it stays forced to measure until it is
+ * laid out, and every measure pass skipped is skipped by the card.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CardViewMeasureTest {
+
+  private static final int WIDTH_SPEC = View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.AT_MOST);
+
+  private static final int HEIGHT_SPEC = View.MeasureSpec.makeMeasureSpec(320, View.MeasureSpec.AT_MOST);
+
+  private CardView mCard;
+
+  private CountingView mChild;
+
+  @Before
+  public void setUp() {
+    final Context context = ApplicationProvider.getApplicationContext();
+    mCard = new CardView(context, new CardViewSpec.Builder(context).setRadius(8f).setCardElevation(4f).build());
+    mChild = new CountingView(context);
+    mCard.addView(mChild);
+    mChild.requestLayout();
+    mChild.mMeasures = 0;
+  }
+
+  @Test
+  public void identicalPasses_skipChildMeasure() {
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+    final int width = mCard.getMeasuredWidth();
+    final int height = mCard.getMeasuredHeight();
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+
+    assertEquals(1, mChild.mMeasures);
+    assertEquals(width, mCard.getMeasuredWidth());
+    assertEquals(height, mCard.getMeasuredHeight());
+  }
+
+  @Test
+  public void changedSpec_measuresChild() {
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+    mCard.measure(View.MeasureSpec.makeMeasureSpec(240, View.MeasureSpec.AT_MOST), HEIGHT_SPEC);
+
+    assertEquals(2, mChild.mMeasures);
+  }
+
+  @Test
+  public void childLayoutRequest_measuresChild() {
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+    mChild.requestLayout();
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+
+    assertEquals(2, mChild.mMeasures);
+  }
+
+  @Test
+  public void setRadii_measuresChild() {
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+    mCard.setRadii(new float[]{8f, 24f, 8f, 24f});
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+
+    assertEquals(2, mChild.mMeasures);
+  }
+
+  @Test
+  public void setMaxCardElevation_measuresChild() {
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+    mCard.setMaxCardElevation(16f);
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+
+    assertEquals(2, mChild.mMeasures);
+  }
+
+  @Test
+  public void setContentPadding_measuresChild() {
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+    mCard.setContentPadding(4, 4, 4, 4);
+    mCard.measure(WIDTH_SPEC, HEIGHT_SPEC);
+
+    assertEquals(2, mChild.mMeasures);
+  }
+}
@@ -0,0 +1,254 @@
+package easy.peasy.cardview.widget;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.util.AttributeSet;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+import easy.peasy.cardview.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.shadows.ShadowTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scrolls a list of card views through simulated frames and checks the work done per frame
+ * against the budgets in budgets.properties.
+ * <p>
+ * The cards are recycled like the view holders of a list: a card scrolled out at the top is bound
+ * to the next item and moved to the bottom.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class CardViewRegressionTest {
+
+  private static final int CARD_WIDTH = 480;
+
+  private static final int CARD_HEIGHT = 160;
+
+  private static final int VIEWPORT_HEIGHT = 800;
+
+  private static final int SCROLL_STEP = 40;
+
+  private static final int FRAMES = 240;
+
+  // radius and elevation per item, items are bound in turn
+  private static final float[][] ITEMS = {{8f, 2f}, {16f, 4f}, {0f, 6f}};
+
+  private static final int[][] STATES = {{android.R.attr.state_activated}, {}};
+
+  private Context mContext;
+
+  private CountingMetrics mMetrics;
+
+  private LayoutCountingParent mParent;
+
+  private final List<ViewHolder> mHolders = new ArrayList<>();
+
+  private Bitmap mBitmap;
+
+  private Canvas mCanvas;
+
+  private final Runnable mScrollFrame = new Runnable() {
+    @Override
+    public void run() {
+      scrollFrame();
+    }
+  };
+
+  @Before
+  public void setUp() {
+    mContext = ApplicationProvider.getApplicationContext();
+    // the sections recorded by Robolectric are allocations of the test, not of the card
+    ShadowTrace.setEnabled(false);
+    ShadowCache.clear();
+    CardView.clearStyleCache();
+    mMetrics = new CountingMetrics();
+    CardView.setMetrics(mMetrics);
+    mParent = new LayoutCountingParent(mContext);
+    mBitmap = Bitmap.createBitmap(CARD_WIDTH, VIEWPORT_HEIGHT, Bitmap.Config.ARGB_8888);
+    mCanvas = new Canvas(mBitmap);
+
+    final AttributeSet attrs = Robolectric.buildAttributeSet()
+      .addAttribute(R.attr.cardCornerRadius, "8px")
+      .addAttribute(R.attr.cardElevation, "2px")
+      .addAttribute(R.attr.cardMaxElevation, "6px")
+      .addAttribute(R.attr.cardBackgroundColor, "#FFFFFFFF")
+      .addAttribute(R.attr.cardShadowImplementation, "compat")
+      .build();
+    for (int position = 0; position * CARD_HEIGHT < VIEWPORT_HEIGHT + CARD_HEIGHT; position++) {
+      final ViewHolder holder = new ViewHolder(new CountingCardView(mContext, attrs));
+      mParent.addView(holder.mCard, new FrameLayout.LayoutParams(CARD_WIDTH, CARD_HEIGHT));
+      mHolders.add(holder);
+      bind(holder, position, position * CARD_HEIGHT);
+    }
+    drawFrame();
+  }
+
+  @After
+  public void tearDown() {
+    CardView.setMetrics(null);
+  }
+
+  @Test
+  public void scroll_staysWithinFrameBudgets() {
+    Allocations.assumeSupported();
+    // every item is bound and drawn once, so the shadows and drawables are cached
+    for (int i = 0; i < FRAMES; i++) {
+      scrollFrame();
+    }
+
+    long maxBytes = 0;
+    int maxInvalidations = 0;
+    int maxLayoutRequests = 0;
+    int maxShadowBuilds = 0;
+    for (int i = 0; i < FRAMES; i++) {
+      resetCounters();
+      maxBytes = Math.max(maxBytes, Allocations.measure(mScrollFrame));
+      maxInvalidations = Math.max(maxInvalidations, getBackgroundInvalidations());
+      maxLayoutRequests = Math.max(maxLayoutRequests, mParent.mLayoutRequests);
+      maxShadowBuilds = Math.max(maxShadowBuilds, mMetrics.mShadowBuilds);
+    }
+
+    Budgets.assertWithin("scroll.bytesPerFrame", maxBytes);
+    Budgets.assertWithin("scroll.invalidationsPerFrame", maxInvalidations);
+    Budgets.assertWithin("scroll.layoutRequestsPerFrame", maxLayoutRequests);
+    Budgets.assertWithin("scroll.shadowBuildsPerFrame", maxShadowBuilds);
+  }
+
+  @Test
+  public void stateChange_staysWithinBudgets() {
+    Allocations.assumeSupported();
+    final ColorStateList colors = new ColorStateList(STATES, new int[]{Color.LTGRAY, Color.WHITE});
+    for (ViewHolder holder : mHolders) {
+      holder.mCard.setCardBackgroundColor(colors);
+    }
+    final Runnable toggle = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0, count = mHolders.size(); i < count; i++) {
+          final CardView card = mHolders.get(i).mCard;
+          card.setActivated(!card.isActivated());
+        }
+        drawFrame();
+      }
+    };
+    for (int i = 0; i < 4; i++) {
+      toggle.run();
+    }
+
+    final int changes = 2 * mHolders.size();
+    resetCounters();
+    final long bytes = Allocations.measure(new Runnable() {
+      @Override
+      public void run() {
+        toggle.run();
+        toggle.run();
+      }
+    });
+
+    Budgets.assertWithin("stateChange.bytesPerChange", (bytes + changes - 1) / changes);
+    Budgets.assertWithin("stateChange.invalidationsPerChange", (getBackgroundInvalidations() + changes - 1) / changes);
+    Budgets.assertWithin("stateChange.shadowBuilds", mMetrics.mShadowBuilds);
+  }
+
+  @Test
+  public void measure_staysWithinBudgets() {
+    Allocations.assumeSupported();
+    final CardView card = mHolders.get(0).mCard;
+    final int wide = View.MeasureSpec.makeMeasureSpec(CARD_WIDTH, View.MeasureSpec.AT_MOST);
+    final int narrow = View.MeasureSpec.makeMeasureSpec(CARD_WIDTH / 2, View.MeasureSpec.AT_MOST);
+    final int height = View.MeasureSpec.makeMeasureSpec(CARD_HEIGHT, View.MeasureSpec.AT_MOST);
+
+    final long bytes = Allocations.measurePerRun(16, 256, new Runnable() {
+      @Override
+      public void run() {
+        card.forceLayout();
+        card.measure(wide, height);
+        card.forceLayout();
+        card.measure(narrow, height);
+      }
+    });
+
+    Budgets.assertWithin("measure.bytesPerPass", (bytes + 1) / 2);
+  }
+
+  private void bind(ViewHolder holder, int position, int top) {
+    final float[] item = ITEMS[position % ITEMS.length];
+    holder.mPosition = position;
+    holder.mEditor.setRadius(item[0]).setCardElevation(item[1]).apply();
+    final CardView card = holder.mCard;
+    card.measure(
+      View.MeasureSpec.makeMeasureSpec(CARD_WIDTH, View.MeasureSpec.EXACTLY),
+      View.MeasureSpec.makeMeasureSpec(CARD_HEIGHT, View.MeasureSpec.EXACTLY)
+    );
+    card.layout(0, top, CARD_WIDTH, top + CARD_HEIGHT);
+  }
+
+  private void scrollFrame() {
+    final int count = mHolders.size();
+    for (int i = 0; i < count; i++) {
+      final ViewHolder holder = mHolders.get(i);
+      holder.mCard.offsetTopAndBottom(-SCROLL_STEP);
+      if (holder.mCard.getBottom() <= 0) {
+        bind(holder, holder.mPosition + count, holder.mCard.getTop() + count * CARD_HEIGHT);
+      }
+    }
+    drawFrame();
+  }
+
+  private void drawFrame() {
+    mBitmap.eraseColor(Color.TRANSPARENT);
+    for (int i = 0, count = mHolders.size(); i < count; i++) {
+      final CardView card = mHolders.get(i).mCard;
+      final int saved = mCanvas.save();
+      mCanvas.translate(card.getLeft(), card.getTop());
+      card.draw(mCanvas);
+      mCanvas.restoreToCount(saved);
+    }
+  }
+
+  private int getBackgroundInvalidations() {
+    int invalidations = 0;
+    for (int i = 0, count = mHolders.size(); i < count; i++) {
+      invalidations += mHolders.get(i).mCard.mBackgroundInvalidations;
+    }
+    return invalidations;
+  }
+
+  private void resetCounters() {
+    for (int i = 0, count = mHolders.size(); i < count; i++) {
+      mHolders.get(i).mCard.mBackgroundInvalidations = 0;
+    }
+    mParent.mLayoutRequests = 0;
+    mMetrics.reset();
+  }
+
+  private static final class ViewHolder {
+
+    final CountingCardView mCard;
+
+    // kept per holder, as a list binds every item with its view holder
+    final CardView.Editor mEditor;
+
+    int mPosition;
+
+    ViewHolder(CountingCardView card) {
+      mCard = card;
+      mEditor = card.edit();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.util.AttributeSet;
+import android.view.ContextThemeWrapper;
+
+import androidx.test.core.app.ApplicationProvider;
+import easy.peasy.cardview.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Benchmarks the inflation of cards from cached specs against parsing their attributes, and checks
+ * that the cache is scoped to the configuration and does not retain themes.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CardViewStyleCacheTest {
+
+  private static final int CARDS = 1000;
+
+  private static final int WARM_UPS = 100;
+
+  private Context mContext;
+
+  private AttributeSet mAttrs;
+
+  private CountingMetrics mMetrics;
+
+  @Before
+  public void setUp() {
+    mContext = ApplicationProvider.getApplicationContext();
+    mAttrs = Robolectric.buildAttributeSet()
+      .addAttribute(R.attr.cardCornerRadius, "8px")
+      .addAttribute(R.attr.cardElevation, "2px")
+      .addAttribute(R.attr.cardMaxElevation, "6px")
+      .addAttribute(R.attr.cardBackgroundColor, "#FFFFFFFF")
+      .build();
+    CardView.clearStyleCache();
+    mMetrics = new CountingMetrics();
+    CardView.setMetrics(mMetrics);
+  }
+
+  @After
+  public void tearDown() {
+    CardView.setMetrics(null);
+    CardView.clearStyleCache();
+  }
+
+  @Test
+  public void inflateCards_cachedSpecIsFasterThanParsing() {
+    final long parsedNanos = inflate(false);
+    final long cachedNanos = inflate(true);
+    System.out.println("Inflated " + CARDS + " cards in " + parsedNanos / 1000000 + " ms parsed, "
+      + cachedNanos / 1000000 + " ms cached");
+
+    assertEquals(2 * (WARM_UPS + CARDS), mMetrics.mInflations);
+    Budgets.assertWithin("inflation.cachedPercentOfParsed", 100 * cachedNanos / parsedNanos);
+  }
+
+  @Test
+  public void alternatingConfigurations_keepTheirSpecs() {
+    final Configuration configuration = new Configuration(mContext.getResources().getConfiguration());
+    configuration.fontScale = 2f;
+    final Context scaled = mContext.createConfigurationContext(configuration);
+
+    new CardView(mContext, mAttrs);
+    new CardView(scaled, mAttrs);
+
+    assertNotNull(CardViewStyleCache.get(CardViewStyleCache.obtainKey(mContext, mAttrs, R.attr.cardViewStyle, R.style.CardView)));
+    assertNotNull(CardViewStyleCache.get(CardViewStyleCache.obtainKey(scaled, mAttrs, R.attr.cardViewStyle, R.style.CardView)));
+  }
+
+  @Test
+  public void configurationUpdatedInPlace_missesSpec() {
+    final Resources.Theme theme = mContext.getTheme();
+    final Configuration configuration = new Configuration(mContext.getResources().getConfiguration());
+    CardViewStyleCache.put(createKey(theme, configuration), new CardViewSpec.Builder(mContext).build());
+    assertNotNull(CardViewStyleCache.get(createKey(theme, configuration)));
+
+    configuration.densityDpi *= 2;
+
+    assertNull(CardViewStyleCache.get(createKey(theme, configuration)));
+  }
+
+  @Test
+  public void cachedSpec_doesNotRetainTheme() {
+    Context context = new ContextThemeWrapper(mContext, android.R.style.Theme_Material_Light);
+    new CardView(context, mAttrs);
+    final WeakReference<Resources.Theme> theme = new WeakReference<>(context.getTheme());
+    context = null;
+
+    for (int i = 0; i < 10 && theme.get() != null; i++) {
+      System.gc();
+      System.runFinalization();
+    }
+
+    assertNull(theme.get());
+  }
+
+  /**
+   * Returns the nanoseconds spent inflating the cards, with the spec cached or parsed per card.
+   */
+  private long inflate(boolean cached) {
+    for (int i = 0; i < WARM_UPS; i++) {
+      inflateCard(cached);
+    }
+    final long startNanos = System.nanoTime();
+    for (int i = 0; i < CARDS; i++) {
+      inflateCard(cached);
+    }
+    return System.nanoTime() - startNanos;
+  }
+
+  private void inflateCard(boolean cached) {
+    if (!cached) {
+      CardView.clearStyleCache();
+    }
+    new CardView(mContext, mAttrs);
+  }
+
+  private static CardViewStyleCache.Key createKey(Resources.Theme theme, Configuration configuration) {
+    return new CardViewStyleCache.Key(theme, configuration, R.attr.cardViewStyle, R.style.CardView, 0, null, null);
+  }
+}
@@ -0,0 +1,101 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * Counts the shadow pixels drawn below the body of a card with mixed radii, which the body paints
+ * over again. Every corner shadow follows its own radius, so there are fewer of them than with the
+ * shadow of the largest radius at every corner, which cards drew before.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class CornerShadowOverdrawTest {
+
+  private static final int WIDTH = 240;
+
+  private static final int HEIGHT = 160;
+
+  private static final float SHADOW_SIZE = 6f;
+
+  @Before
+  public void setUp() {
+    ShadowCache.clear();
+  }
+
+  @Test
+  public void gradient_mixedRadii_overdrawLessThanMaxRadius() {
+    assertLessOverdraw(CardView.SHADOW_RENDER_MODE_GRADIENT, new float[]{0f, 0f, 24f, 4f});
+  }
+
+  @Test
+  public void atlas_mixedRadii_overdrawLessThanMaxRadius() {
+    assertLessOverdraw(CardView.SHADOW_RENDER_MODE_ATLAS, new float[]{0f, 0f, 24f, 4f});
+  }
+
+  @Test
+  public void atlas_oneRoundCorner_overdrawLessThanMaxRadius() {
+    assertLessOverdraw(CardView.SHADOW_RENDER_MODE_ATLAS, new float[]{32f, 2f, 2f, 2f});
+  }
+
+  private void assertLessOverdraw(int mode, float[] radii) {
+    final float maxRadius = Math.max(Math.max(radii[0], radii[1]), Math.max(radii[2], radii[3]));
+    final Bitmap body = render(radii, Color.WHITE, false, mode);
+    final Bitmap shadow = render(radii, Color.TRANSPARENT, true, mode);
+    final Bitmap maxRadiusShadow = render(new float[]{maxRadius, maxRadius, maxRadius, maxRadius}, Color.TRANSPARENT, true, mode);
+
+    final int overdraw = countShadowBelowBody(shadow, body);
+    final int maxRadiusOverdraw = countShadowBelowBody(maxRadiusShadow, body);
+
+    assertTrue("No shadow drawn", countShadow(shadow) > 0);
+    assertTrue("Overdraw " + overdraw + " not below " + maxRadiusOverdraw, overdraw < maxRadiusOverdraw);
+  }
+
+  private static Bitmap render(float[] radii, int color, boolean shadowEnabled, int mode) {
+    final RoundRectDrawableWithShadow drawable = new RoundRectDrawableWithShadow(
+      ColorStateList.valueOf(color), CornerRadius.build(0f, radii[0], radii[1], radii[2], radii[3]),
+      SHADOW_SIZE, SHADOW_SIZE, 0x37000000, 0x03000000, 1);
+    drawable.setShadowRenderMode(mode);
+    drawable.setShadowAllSides(true);
+    drawable.setShadowEnabled(shadowEnabled);
+    drawable.setBounds(0, 0, WIDTH, HEIGHT);
+
+    final Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+    drawable.draw(new Canvas(bitmap));
+    return bitmap;
+  }
+
+  private static int countShadowBelowBody(Bitmap shadow, Bitmap body) {
+    int count = 0;
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        if (Color.alpha(body.getPixel(x, y)) == 0xFF && Color.alpha(shadow.getPixel(x, y)) > 0) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static int countShadow(Bitmap shadow) {
+    int count = 0;
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        if (Color.alpha(shadow.getPixel(x, y)) > 0) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+}
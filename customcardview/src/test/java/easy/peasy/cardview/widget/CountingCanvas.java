@@ -0,0 +1,46 @@
+package easy.peasy.cardview.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A canvas counting the bitmap draws of the shadow atlases, and how often consecutive draws switch
+ * to another bitmap or paint, which the renderer has to rebind.
+ */
+class CountingCanvas extends Canvas {
+
+  @NonNull
+  final Bitmap mBitmap;
+
+  int mBitmapDraws;
+
+  int mStateSwitches;
+
+  @Nullable
+  private Bitmap mLastBitmap;
+
+  @Nullable
+  private Paint mLastPaint;
+
+  CountingCanvas(@NonNull Bitmap bitmap) {
+    super(bitmap);
+    mBitmap = bitmap;
+  }
+
+  @Override
+  public void drawBitmap(@NonNull Bitmap bitmap, @Nullable Rect src, @NonNull RectF dst, @Nullable Paint paint) {
+    mBitmapDraws++;
+    if (bitmap != mLastBitmap || paint != mLastPaint) {
+      mStateSwitches++;
+      mLastBitmap = bitmap;
+      mLastPaint = paint;
+    }
+    super.drawBitmap(bitmap, src, dst, paint);
+  }
+}
@@ -0,0 +1,33 @@
+package easy.peasy.cardview.widget;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A card view counting the invalidations of its background, i.e. the invalidateSelf() calls of
+ * {@link RoundRectDrawableWithShadow} which reach the view.
+ */
+class CountingCardView extends CardView {
+
+  int mBackgroundInvalidations;
+
+  CountingCardView(@NonNull Context context, @Nullable AttributeSet attrs) {
+    super(context, attrs);
+  }
+
+  CountingCardView(@NonNull Context context, @NonNull CardViewSpec spec) {
+    super(context, spec);
+  }
+
+  @Override
+  public void invalidateDrawable(@NonNull Drawable drawable) {
+    if (drawable == getBackground()) {
+      mBackgroundInvalidations++;
+    }
+    super.invalidateDrawable(drawable);
+  }
+}
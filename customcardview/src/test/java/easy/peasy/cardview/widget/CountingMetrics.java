@@ -0,0 +1,42 @@
+package easy.peasy.cardview.widget;
+
+/**
+ * Counts the events reported to {@link CardView#setMetrics(CardViewMetrics)}.
+ */
+final class CountingMetrics implements CardViewMetrics {
+
+  int mInflations;
+
+  int mMeasures;
+
+  int mShadowBuilds;
+
+  int mShadowDraws;
+
+  @Override
+  public void onInflate(long durationNanos) {
+    mInflations++;
+  }
+
+  @Override
+  public void onMeasure(long durationNanos) {
+    mMeasures++;
+  }
+
+  @Override
+  public void onShadowBuild(long durationNanos) {
+    mShadowBuilds++;
+  }
+
+  @Override
+  public void onShadowDraw(long durationNanos) {
+    mShadowDraws++;
+  }
+
+  void reset() {
+    mInflations = 0;
+    mMeasures = 0;
+    mShadowBuilds = 0;
+    mShadowDraws = 0;
+  }
+}
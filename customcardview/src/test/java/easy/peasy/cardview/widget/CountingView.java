@@ -0,0 +1,22 @@
+package easy.peasy.cardview.widget;
+
+import android.content.Context;
+import android.view.View;
+
+/**
+ * A view counting its measure passes.
+ */
+class CountingView extends View {
+
+  int mMeasures;
+
+  CountingView(Context context) {
+    super(context);
+  }
+
+  @Override
+  protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    mMeasures++;
+    setMeasuredDimension(100, 40);
+  }
+}
@@ -0,0 +1,25 @@
+package easy.peasy.cardview.widget;
+
+import android.content.Context;
+import android.widget.FrameLayout;
+
+/**
+ * A parent counting the layout requests of its children.
+ * <p>
+ * A view only forwards a layout request to its parent while the parent has not requested a layout
+ * itself. This parent never does, so every layout request a child issues is counted, and the
+ * children are measured and laid out by the test.
+ */
+class LayoutCountingParent extends FrameLayout {
+
+  int mLayoutRequests;
+
+  LayoutCountingParent(Context context) {
+    super(context);
+  }
+
+  @Override
+  public void requestLayout() {
+    mLayoutRequests++;
+  }
+}
@@ -0,0 +1,128 @@
+package easy.peasy.cardview.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A canvas recording the pixels painted by its draw calls, counting the bounds of each shape
+ * within the clip. Pixels painted by several calls are counted once per call, so the count over
+ * the size of the canvas is its overdraw.
+ */
+class PaintedAreaCanvas extends Canvas {
+
+  long mPaintedPixels;
+
+  // draw calls delegating to other overloads are counted by the outermost call only
+  private int mDepth;
+
+  private final Matrix mMatrix = new Matrix();
+
+  private final RectF mBounds = new RectF();
+
+  private final RectF mClipBounds = new RectF();
+
+  private final Rect mClip = new Rect();
+
+  PaintedAreaCanvas(@NonNull Bitmap bitmap) {
+    super(bitmap);
+  }
+
+  private void enter(float left, float top, float right, float bottom) {
+    if (mDepth++ > 0 || !getClipBounds(mClip)) {
+      return;
+    }
+    getMatrix(mMatrix);
+    mBounds.set(left, top, right, bottom);
+    mMatrix.mapRect(mBounds);
+    mClipBounds.set(mClip);
+    mMatrix.mapRect(mClipBounds);
+    if (mBounds.intersect(mClipBounds)) {
+      mPaintedPixels += Math.round(mBounds.width() * mBounds.height());
+    }
+  }
+
+  private void exit() {
+    mDepth--;
+  }
+
+  @Override
+  public void drawRect(@NonNull RectF rect, @NonNull Paint paint) {
+    enter(rect.left, rect.top, rect.right, rect.bottom);
+    super.drawRect(rect, paint);
+    exit();
+  }
+
+  @Override
+  public void drawRect(@NonNull Rect rect, @NonNull Paint paint) {
+    enter(rect.left, rect.top, rect.right, rect.bottom);
+    super.drawRect(rect, paint);
+    exit();
+  }
+
+  @Override
+  public void drawRect(float left, float top, float right, float bottom, @NonNull Paint paint) {
+    enter(left, top, right, bottom);
+    super.drawRect(left, top, right, bottom, paint);
+    exit();
+  }
+
+  @Override
+  public void drawRoundRect(@NonNull RectF rect, float rx, float ry, @NonNull Paint paint) {
+    enter(rect.left, rect.top, rect.right, rect.bottom);
+    super.drawRoundRect(rect, rx, ry, paint);
+    exit();
+  }
+
+  @Override
+  public void drawRoundRect(float left, float top, float right, float bottom, float rx, float ry, @NonNull Paint paint) {
+    enter(left, top, right, bottom);
+    super.drawRoundRect(left, top, right, bottom, rx, ry, paint);
+    exit();
+  }
+
+  @Override
+  public void drawPath(@NonNull Path path, @NonNull Paint paint) {
+    path.computeBounds(mBounds, true);
+    enter(mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+    super.drawPath(path, paint);
+    exit();
+  }
+
+  @Override
+  public void drawBitmap(@NonNull Bitmap bitmap, @Nullable Rect src, @NonNull RectF dst, @Nullable Paint paint) {
+    enter(dst.left, dst.top, dst.right, dst.bottom);
+    super.drawBitmap(bitmap, src, dst, paint);
+    exit();
+  }
+
+  @Override
+  public void drawBitmap(@NonNull Bitmap bitmap, @Nullable Rect src, @NonNull Rect dst, @Nullable Paint paint) {
+    enter(dst.left, dst.top, dst.right, dst.bottom);
+    super.drawBitmap(bitmap, src, dst, paint);
+    exit();
+  }
+
+  @Override
+  public void drawColor(int color) {
+    getClipBounds(mClip);
+    enter(mClip.left, mClip.top, mClip.right, mClip.bottom);
+    super.drawColor(color);
+    exit();
+  }
+
+  @Override
+  public void drawPaint(@NonNull Paint paint) {
+    getClipBounds(mClip);
+    enter(mClip.left, mClip.top, mClip.right, mClip.bottom);
+    super.drawPaint(paint);
+    exit();
+  }
+}
@@ -0,0 +1,130 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.shadows.ShadowTrace;
+
+/**
+ * Counts the allocations of binding a card to new radii, as a recycled card of a list is bound to
+ * the radii of its next item, and of the frames of a radii animation.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class RadiiAllocationTest {
+
+  private static final float[][] RADII = {{8f, 8f, 8f, 8f}, {16f, 0f, 16f, 0f}, {0f, 0f, 0f, 0f}, {4f, 12f, 24f, 6f}};
+
+  // the interned radii of the items, in use by other cards of the list
+  private final CornerRadius[] mItemRadii = new CornerRadius[RADII.length];
+
+  @Before
+  public void setUp() {
+    Allocations.assumeSupported();
+    // the sections recorded by Robolectric are allocations of the test, not of the card
+    ShadowTrace.setEnabled(false);
+    for (int i = 0; i < RADII.length; i++) {
+      mItemRadii[i] = CornerRadius.obtainWithOffset(RADII[i], RoundRectDrawableWithShadow.RADIUS_OFFSET);
+    }
+  }
+
+  @Test
+  public void obtainWithOffset_returnsInternedRadii() {
+    for (int i = 0; i < RADII.length; i++) {
+      final float[] radii = RADII[i];
+      assertSame(mItemRadii[i], CornerRadius.build(0f, radii[0], radii[1], radii[2], radii[3])
+        .withOffset(RoundRectDrawableWithShadow.RADIUS_OFFSET));
+    }
+  }
+
+  @Test
+  public void obtainWithOffset_newRadiiAreEqualBothWaysAndKeepTheirValues() {
+    final CornerRadius obtained = CornerRadius.obtainWithOffset(new float[] {3f, 5f, 7f, 9f}, RoundRectDrawableWithShadow.RADIUS_OFFSET);
+    final CornerRadius built = CornerRadius.build(0f, 3f, 5f, 7f, 9f).withOffset(RoundRectDrawableWithShadow.RADIUS_OFFSET);
+    // a later lookup reuses the scratch radii, which must not leak into the interned instance
+    CornerRadius.obtainWithOffset(new float[] {1f, 2f, 4f, 6f}, RoundRectDrawableWithShadow.RADIUS_OFFSET);
+
+    assertArrayEquals(new float[] {3f, 5f, 7f, 9f}, obtained.getCornerRadii(), 0f);
+    assertEquals(obtained, built);
+    assertEquals(built, obtained);
+    assertEquals(obtained.hashCode(), built.hashCode());
+  }
+
+  @Test
+  public void drawable_bindingRadiiAllocatesNothing() {
+    final RoundRectDrawableWithShadow drawable = new RoundRectDrawableWithShadow(
+      ColorStateList.valueOf(Color.WHITE), CornerRadius.build(0f, 8f, 8f, 8f, 8f), 4f, 8f, 0x37000000, 0x03000000, 1);
+
+    final long bytes = Allocations.measurePerRun(2 * RADII.length, 256, new Runnable() {
+
+      private int mStep;
+
+      @Override
+      public void run() {
+        drawable.setCornerRadii(RADII[mStep++ % RADII.length]);
+      }
+    });
+
+    Budgets.assertWithin("radiiBinding.bytesPerBind", bytes);
+  }
+
+  @Test
+  public void card_bindingRadiiAllocatesNothing() {
+    final Context context = ApplicationProvider.getApplicationContext();
+    final CardView card = new CardView(context, new CardViewSpec.Builder(context)
+      .setRadius(8f)
+      .setShadowImplementation(CardView.SHADOW_IMPLEMENTATION_COMPAT)
+      .build());
+
+    final long bytes = Allocations.measurePerRun(2 * RADII.length, 256, new Runnable() {
+
+      private int mStep;
+
+      @Override
+      public void run() {
+        card.setRadii(RADII[mStep++ % RADII.length]);
+      }
+    });
+
+    Budgets.assertWithin("radiiBinding.bytesPerBind", bytes);
+  }
+
+  @Test
+  public void animation_settingFrameRadiiAllocatesNothing() {
+    final float[] startRadii = {8f, 8f, 8f, 8f};
+    final float[] endRadii = {32f, 0f, 24f, 4f};
+    final RoundRectDrawableWithShadow drawable = new RoundRectDrawableWithShadow(
+      ColorStateList.valueOf(Color.WHITE), CornerRadius.build(8f, 0f, 0f, 0f, 0f), 4f, 8f, 0x37000000, 0x03000000, 1);
+    drawable.startRadiiAnimation(startRadii, endRadii);
+    final float[] radii = new float[4];
+
+    final long bytes = Allocations.measurePerRun(16, 256, new Runnable() {
+
+      private int mFrame;
+
+      @Override
+      public void run() {
+        // the frames of an animation of 100 frames, over and over
+        final float fraction = (mFrame++ % 101) / 100f;
+        for (int i = 0; i < radii.length; i++) {
+          radii[i] = startRadii[i] + (endRadii[i] - startRadii[i]) * fraction;
+        }
+        drawable.setCornerRadii(radii);
+      }
+    });
+
+    Budgets.assertWithin("radiiBinding.bytesPerBind", bytes);
+  }
+}
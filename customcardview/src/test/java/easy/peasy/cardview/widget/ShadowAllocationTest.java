@@ -0,0 +1,100 @@
+package easy.peasy.cardview.widget;
+
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.shadows.ShadowTrace;
+
+/**
+ * Counts the allocations of resizing a shadow and changing its elevation, including the rebuild of
+ * the shadow on the next draw.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ShadowAllocationTest {
+
+  private static final int WIDTH = 240;
+
+  private static final int HEIGHT = 160;
+
+  private static final float[] SHADOW_SIZES = {2f, 4f, 6f, 8f, 10f, 12f};
+
+  private Canvas mCanvas;
+
+  @Before
+  public void setUp() {
+    Allocations.assumeSupported();
+    // the sections recorded by Robolectric are allocations of the test, not of the card
+    ShadowTrace.setEnabled(false);
+    ShadowCache.clear();
+    mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+  }
+
+  @Test
+  public void gradient_resizeAllocatesNothing() {
+    final RoundRectDrawableWithShadow drawable = createDrawable(CardView.SHADOW_RENDER_MODE_GRADIENT);
+
+    Budgets.assertWithin("shadowResize.gradientBytesPerResize", measureResize(drawable));
+  }
+
+  @Test
+  public void atlas_resizeAllocatesNothing() {
+    final RoundRectDrawableWithShadow drawable = createDrawable(CardView.SHADOW_RENDER_MODE_ATLAS);
+
+    Budgets.assertWithin("shadowResize.atlasBytesPerResize", measureResize(drawable));
+  }
+
+  @Test
+  public void gradient_cardsOfDifferentSizesAllocateNothing() {
+    // the cards share the unit size shaders, drawing one must not invalidate them for the other
+    final RoundRectDrawableWithShadow small = createDrawable(CardView.SHADOW_RENDER_MODE_GRADIENT);
+    small.setShadowSize(2f);
+    final RoundRectDrawableWithShadow large = createDrawable(CardView.SHADOW_RENDER_MODE_GRADIENT);
+    large.setShadowSize(12f);
+
+    final long bytes = Allocations.measurePerRun(16, 256, new Runnable() {
+      @Override
+      public void run() {
+        small.draw(mCanvas);
+        large.draw(mCanvas);
+      }
+    });
+
+    Budgets.assertWithin("shadowResize.gradientBytesPerSharedDraw", bytes);
+  }
+
+  /**
+   * Returns the bytes allocated per change of the shadow size and the bounds, after every size
+   * was drawn once.
+   */
+  private long measureResize(final RoundRectDrawableWithShadow drawable) {
+    return Allocations.measurePerRun(4 * SHADOW_SIZES.length, 256, new Runnable() {
+
+      private int mStep;
+
+      @Override
+      public void run() {
+        drawable.setShadowSize(SHADOW_SIZES[mStep % SHADOW_SIZES.length]);
+        drawable.setBounds(0, 0, WIDTH - mStep % 2, HEIGHT - mStep % 3);
+        drawable.draw(mCanvas);
+        mStep++;
+      }
+    });
+  }
+
+  private static RoundRectDrawableWithShadow createDrawable(int mode) {
+    final RoundRectDrawableWithShadow drawable = new RoundRectDrawableWithShadow(
+      ColorStateList.valueOf(Color.WHITE), CornerRadius.build(0f, 8f, 16f, 8f, 0f), 4f, 12f, 0x37000000, 0x03000000, 1);
+    drawable.setShadowRenderMode(mode);
+    drawable.setShadowAllSides(true);
+    drawable.setBounds(0, 0, WIDTH, HEIGHT);
+    return drawable;
+  }
+}
@@ -0,0 +1,82 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * Checks the shadow drawn when an animation switches it between the atlas and the gradients.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ShadowAnimationTest {
+
+  private static final int WIDTH = 200;
+
+  private static final int HEIGHT = 120;
+
+  private RoundRectDrawableWithShadow mDrawable;
+
+  private Bitmap mBitmap;
+
+  private Canvas mCanvas;
+
+  @Before
+  public void setUp() {
+    ShadowCache.clear();
+    mDrawable = new RoundRectDrawableWithShadow(
+      ColorStateList.valueOf(Color.WHITE), CornerRadius.build(12f, 0f, 0f, 0f, 0f), 8f, 8f, 0x37000000, 0x03000000, 1);
+    mDrawable.setBounds(0, 0, WIDTH, HEIGHT);
+    mBitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+    mCanvas = new Canvas(mBitmap);
+  }
+
+  @Test
+  public void radiiAnimation_duringGradientShadowAnimation_drawsGradients() {
+    mDrawable.setShadowRenderMode(CardView.SHADOW_RENDER_MODE_GRADIENT);
+    mDrawable.startShadowAnimation(2f, 8f);
+    draw();
+
+    mDrawable.startRadiiAnimation(new float[]{12f, 12f, 12f, 12f}, new float[]{24f, 0f, 24f, 0f});
+    draw();
+
+    assertNull(mDrawable.getShadowAtlas());
+    assertShadowDrawn();
+  }
+
+  @Test
+  public void radiiAnimationEnd_atlasMode_drawsAtlas() {
+    mDrawable.setShadowRenderMode(CardView.SHADOW_RENDER_MODE_ATLAS);
+    mDrawable.startRadiiAnimation(new float[]{12f, 12f, 12f, 12f}, new float[]{24f, 0f, 24f, 0f});
+    mDrawable.setCornerRadii(new float[]{24f, 0f, 24f, 0f});
+    draw();
+    assertNull(mDrawable.getShadowAtlas());
+
+    mDrawable.endRadiiAnimation();
+    draw();
+
+    assertNotNull(mDrawable.getShadowAtlas());
+    assertShadowDrawn();
+  }
+
+  private void draw() {
+    mBitmap.eraseColor(Color.TRANSPARENT);
+    mDrawable.draw(mCanvas);
+  }
+
+  private void assertShadowDrawn() {
+    // below the card, which ends 12px above the bottom to leave room for the max shadow
+    assertTrue(Color.alpha(mBitmap.getPixel(WIDTH / 2, HEIGHT - 4)) > 0);
+  }
+}
@@ -0,0 +1,237 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * Checks the hit and miss counts of the shadow cache, the limits of render jobs and prefetches, and
+ * the placeholder of shadows rendered in the background.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ShadowCacheTest {
+
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  // more shadows than the render jobs which may wait for the background thread
+  private static final int FLOODING_CARDS = 32;
+
+  private static final int FLOODING_FRAMES = 20;
+
+  private int mHits;
+
+  private int mMisses;
+
+  @Before
+  public void setUp() {
+    ShadowCache.clear();
+    mHits = ShadowCache.getHitCount();
+    mMisses = ShadowCache.getMissCount();
+  }
+
+  @Test
+  public void obtain_countsMissThenHit() {
+    final ShadowCache.Key key = createKey(8f);
+
+    assertNotNull(ShadowCache.obtain(key));
+    assertNotNull(ShadowCache.obtain(key));
+
+    assertCounts(1, 1);
+  }
+
+  @Test
+  public void asyncRender_countsOneMiss() {
+    final ShadowCache.Key key = createKey(10f);
+    assertNull(ShadowCache.get(key));
+    final Result result = new Result();
+
+    ShadowCache.requestAsync(key, result);
+    result.await();
+
+    assertNotNull(result.mAtlas);
+    assertCounts(0, 1);
+    assertNotNull(ShadowCache.get(key));
+    assertCounts(1, 1);
+  }
+
+  @Test
+  public void prefetch_countsNothing() {
+    final ShadowCache.Key[] keys = {createKey(2f), createKey(4f), createKey(6f)};
+    final Result result = new Result();
+
+    ShadowCache.prefetchAsync(keys);
+    // queued behind the prefetch on the background thread
+    ShadowCache.requestAsync(createKey(8f), result);
+    result.await();
+
+    assertCounts(0, 0);
+  }
+
+  @Test
+  public void asyncRendering_drawsPlaceholderUntilRendered() {
+    final RoundRectDrawableWithShadow drawable = new RoundRectDrawableWithShadow(
+      ColorStateList.valueOf(Color.WHITE), CornerRadius.build(12f, 0f, 0f, 0f, 0f), 8f, 8f, 0x37000000, 0x03000000, 1);
+    drawable.setAsyncShadowRendering(true);
+    drawable.setBounds(0, 0, 200, 120);
+    final Bitmap bitmap = Bitmap.createBitmap(200, 120, Bitmap.Config.ARGB_8888);
+
+    drawable.draw(new Canvas(bitmap));
+
+    assertNull(drawable.getShadowAtlas());
+    // the shadow below the card
+    assertTrue(Color.alpha(bitmap.getPixel(100, 116)) > 0);
+  }
+
+  @Test
+  public void droppedRenderJobs_areNotRequestedAgain() {
+    final CountingMetrics metrics = new CountingMetrics();
+    final RoundRectDrawableWithShadow[] drawables = new RoundRectDrawableWithShadow[FLOODING_CARDS];
+    final Bitmap bitmap = Bitmap.createBitmap(200, 120, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+    for (int i = 0; i < drawables.length; i++) {
+      // a distinct shadow per card, so every card requests its own render job
+      drawables[i] = new RoundRectDrawableWithShadow(
+        ColorStateList.valueOf(Color.WHITE), CornerRadius.build(4f + i, 0f, 0f, 0f, 0f), 8f, 8f, 0x37000000, 0x03000000, 1);
+      drawables[i].setAsyncShadowRendering(true);
+      drawables[i].setBounds(0, 0, 200, 120);
+    }
+    CardView.setMetrics(metrics);
+    try {
+      for (int frame = 0; frame < FLOODING_FRAMES; frame++) {
+        for (RoundRectDrawableWithShadow drawable : drawables) {
+          drawable.draw(canvas);
+        }
+        shadowOf(Looper.getMainLooper()).idle();
+        sleep(20);
+      }
+    } finally {
+      CardView.setMetrics(null);
+      for (RoundRectDrawableWithShadow drawable : drawables) {
+        drawable.setVisible(false, false);
+      }
+    }
+
+    // one build and one lookup per card, dropped jobs leave the placeholder until the next rebuild
+    assertEquals(FLOODING_CARDS, metrics.mShadowBuilds);
+    assertCounts(0, FLOODING_CARDS);
+  }
+
+  @Test
+  public void prefetch_rendersAtMostMaxKeys() {
+    final ShadowCache.Key[] keys = new ShadowCache.Key[ShadowCache.MAX_PREFETCH_KEYS + 4];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = createKey(2f * (i + 1));
+    }
+    final Result result = new Result();
+
+    ShadowCache.prefetchAsync(keys);
+    ShadowCache.requestAsync(createKey(100f), result);
+    result.await();
+
+    assertNotNull(ShadowCache.get(keys[ShadowCache.MAX_PREFETCH_KEYS - 1]));
+    assertNull(ShadowCache.get(keys[ShadowCache.MAX_PREFETCH_KEYS]));
+  }
+
+  @Test
+  public void cancelledPrefetch_stopsRendering() {
+    final ShadowCache.Key[] keys = new ShadowCache.Key[ShadowCache.MAX_PREFETCH_KEYS];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = createKey(64f + 2f * i);
+    }
+    final Result result = new Result();
+
+    ShadowCache.prefetchAsync(keys).cancel();
+    ShadowCache.requestAsync(createKey(100f), result);
+    result.await();
+
+    // at most the atlas being rendered when it was cancelled
+    int cached = 0;
+    for (ShadowCache.Key key : keys) {
+      if (ShadowCache.get(key) != null) {
+        cached++;
+      }
+    }
+    assertTrue(cached <= 1);
+  }
+
+  @Test
+  public void animatedShadow_drawsPlaceholderUntilRendered() {
+    final RoundRectDrawableWithShadow drawable = new RoundRectDrawableWithShadow(
+      ColorStateList.valueOf(Color.WHITE), CornerRadius.build(12f, 0f, 0f, 0f, 0f), 2f, 16f, 0x37000000, 0x03000000, 1);
+    drawable.setShadowRenderMode(CardView.SHADOW_RENDER_MODE_GRADIENT);
+    drawable.setBounds(0, 0, 200, 120);
+    final Bitmap bitmap = Bitmap.createBitmap(200, 120, Bitmap.Config.ARGB_8888);
+    final Canvas canvas = new Canvas(bitmap);
+    drawable.draw(canvas);
+
+    // the first frame is drawn before the prefetch rendered its atlas
+    ShadowCache.clear();
+    drawable.startShadowAnimation(2f, 16f);
+    drawable.setShadowSize(4f);
+    bitmap.eraseColor(Color.TRANSPARENT);
+    drawable.draw(canvas);
+
+    // the shadow below the card, which ends 24px above the bottom to leave room for the max shadow
+    assertTrue(Color.alpha(bitmap.getPixel(100, 99)) > 0);
+  }
+
+  private void assertCounts(int hits, int misses) {
+    assertEquals(hits, ShadowCache.getHitCount() - mHits);
+    assertEquals(misses, ShadowCache.getMissCount() - mMisses);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static ShadowCache.Key createKey(float shadowSize) {
+    final ShadowCache.Key key = new ShadowCache.Key();
+    key.set(CornerRadius.build(8f, 0f, 0f, 0f, 0f), shadowSize, 1, 0x37000000, 0x03000000);
+    return key;
+  }
+
+  private static final class Result implements ShadowCache.Callback {
+
+    boolean mDelivered;
+
+    @Nullable
+    ShadowCache.Atlas mAtlas;
+
+    @Override
+    public void onAtlasReady(@Nullable ShadowCache.Atlas atlas) {
+      mDelivered = true;
+      mAtlas = atlas;
+    }
+
+    void await() {
+      // the render thread runs in real time, unlike the clock of the main looper
+      final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (!mDelivered && System.currentTimeMillis() < deadline) {
+        shadowOf(Looper.getMainLooper()).idle();
+        sleep(10);
+      }
+      assertTrue("The atlas was not delivered", mDelivered);
+    }
+  }
+}
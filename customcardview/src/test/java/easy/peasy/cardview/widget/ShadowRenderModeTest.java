@@ -0,0 +1,123 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import androidx.test.core.app.ApplicationProvider;
+import easy.peasy.cardview.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * Compares the pixels of the shadow drawn from the atlas with the shadow drawn with gradients,
+ * which was the only render mode before the atlas became the default.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ShadowRenderModeTest {
+
+  private static final int WIDTH = 240;
+
+  private static final int HEIGHT = 160;
+
+  private int mShadowStartColor;
+
+  private int mShadowEndColor;
+
+  private int mInsetShadow;
+
+  @Before
+  public void setUp() {
+    final Resources resources = ApplicationProvider.getApplicationContext().getResources();
+    mShadowStartColor = resources.getColor(R.color.cardview_shadow_start_color);
+    mShadowEndColor = resources.getColor(R.color.cardview_shadow_end_color);
+    mInsetShadow = resources.getDimensionPixelSize(R.dimen.cardview_compat_inset_shadow);
+    ShadowCache.clear();
+  }
+
+  @Test
+  public void uniformRadii_atlasMatchesGradient() {
+    assertModesMatch(new float[]{8f, 8f, 8f, 8f}, 4f, false, mShadowStartColor, mShadowEndColor);
+  }
+
+  @Test
+  public void largeShadow_atlasMatchesGradient() {
+    assertModesMatch(new float[]{16f, 16f, 16f, 16f}, 12f, false, mShadowStartColor, mShadowEndColor);
+  }
+
+  @Test
+  public void largeRadiusSmallShadow_atlasMatchesGradient() {
+    // the corner gradient starts close to its outer radius, where a coarse ratio step would move
+    // its start by a pixel
+    assertModesMatch(new float[]{60f, 60f, 60f, 60f}, 2f, false, mShadowStartColor, mShadowEndColor);
+  }
+
+  @Test
+  public void mixedRadiiOnAllSides_atlasMatchesGradient() {
+    assertModesMatch(new float[]{0f, 12f, 24f, 4f}, 6f, true, mShadowStartColor, mShadowEndColor);
+  }
+
+  @Test
+  public void twoHueColors_atlasMatchesGradient() {
+    // not an alpha mask, the atlas keeps the colors
+    assertModesMatch(new float[]{10f, 10f, 10f, 10f}, 8f, true, 0x66FF0000, 0x050000FF);
+  }
+
+  private void assertModesMatch(float[] radii, float shadowSize, boolean allSides, int startColor, int endColor) {
+    final Bitmap atlas = render(CardView.SHADOW_RENDER_MODE_ATLAS, radii, shadowSize, allSides, startColor, endColor);
+    final Bitmap gradient = render(CardView.SHADOW_RENDER_MODE_GRADIENT, radii, shadowSize, allSides, startColor, endColor);
+
+    int maxDifference = 0;
+    int differingPixels = 0;
+    int shadowPixels = 0;
+    final int tolerance = (int) Budgets.get("renderMode.pixelTolerance");
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        final int expected = gradient.getPixel(x, y);
+        final int actual = atlas.getPixel(x, y);
+        if (expected != 0 || actual != 0) {
+          shadowPixels++;
+        }
+        final int difference = channelDifference(expected, actual);
+        maxDifference = Math.max(maxDifference, difference);
+        if (difference > tolerance) {
+          differingPixels++;
+        }
+      }
+    }
+
+    assertTrue("No shadow drawn", shadowPixels > 0);
+    Budgets.assertWithin("renderMode.maxChannelDifference", maxDifference);
+    Budgets.assertWithin("renderMode.differingPixelsPerMille", 1000L * differingPixels / shadowPixels);
+  }
+
+  private Bitmap render(int mode, float[] radii, float shadowSize, boolean allSides, int startColor, int endColor) {
+    final CornerRadius cornerRadius = CornerRadius.build(0f, radii[0], radii[1], radii[2], radii[3]);
+    final RoundRectDrawableWithShadow drawable = new RoundRectDrawableWithShadow(
+      ColorStateList.valueOf(Color.WHITE), cornerRadius, shadowSize, shadowSize, startColor, endColor, mInsetShadow);
+    drawable.setShadowRenderMode(mode);
+    drawable.setShadowAllSides(allSides);
+    drawable.setBounds(0, 0, WIDTH, HEIGHT);
+
+    final Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+    drawable.draw(new Canvas(bitmap));
+    return bitmap;
+  }
+
+  private static int channelDifference(int first, int second) {
+    int difference = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      difference = Math.max(difference, Math.abs(((first >>> shift) & 0xFF) - ((second >>> shift) & 0xFF)));
+    }
+    return difference;
+  }
+}
@@ -0,0 +1,138 @@
+package easy.peasy.cardview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.Looper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.time.Duration;
+
+/**
+ * Counts the shadow rebuilds and invalidations of the background of a card whose state changes,
+ * which only recolors the card drawable, and checks that a pressed card draws its ripple.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class StateChangeTest {
+
+  private static final int[] ACTIVATED = {android.R.attr.state_activated};
+
+  private static final int[] DEFAULT = {};
+
+  private CountingMetrics mMetrics;
+
+  private RoundRectDrawableWithShadow mDrawable;
+
+  private int mInvalidations;
+
+  private Canvas mCanvas;
+
+  private final Drawable.Callback mCallback = new Drawable.Callback() {
+    @Override
+    public void invalidateDrawable(@NonNull Drawable who) {
+      mInvalidations++;
+    }
+
+    @Override
+    public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+    }
+
+    @Override
+    public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+    }
+  };
+
+  @Before
+  public void setUp() {
+    final Context context = ApplicationProvider.getApplicationContext();
+    final ColorStateList colors = new ColorStateList(new int[][]{ACTIVATED, DEFAULT}, new int[]{Color.LTGRAY, Color.WHITE});
+    final CardViewSpec spec = new CardViewSpec.Builder(context)
+      .setRadius(8f)
+      .setCardElevation(4f)
+      .setShadowImplementation(CardView.SHADOW_IMPLEMENTATION_COMPAT)
+      .build();
+    final CardView card = new CardView(context, spec);
+    card.setCardBackgroundColor(colors);
+    mDrawable = card.getShadowBackground();
+    mDrawable.setCallback(mCallback);
+    mDrawable.setBounds(0, 0, 240, 160);
+    mCanvas = new Canvas(Bitmap.createBitmap(240, 160, Bitmap.Config.ARGB_8888));
+    mDrawable.draw(mCanvas);
+
+    mMetrics = new CountingMetrics();
+    CardView.setMetrics(mMetrics);
+    mInvalidations = 0;
+  }
+
+  @After
+  public void tearDown() {
+    CardView.setMetrics(null);
+  }
+
+  @Test
+  public void stateChange_rebuildsNothing() {
+    for (int i = 0; i < 8; i++) {
+      assertTrue(mDrawable.setState(i % 2 == 0 ? ACTIVATED : DEFAULT));
+      mDrawable.draw(mCanvas);
+    }
+
+    assertEquals(0, mMetrics.mShadowBuilds);
+    assertEquals(8, mMetrics.mShadowDraws);
+  }
+
+  @Test
+  public void press_redrawsRipple() {
+    final Context context = ApplicationProvider.getApplicationContext();
+    final CountingCardView card = new CountingCardView(context, new CardViewSpec.Builder(context)
+      .setRadius(8f)
+      .setCardBackgroundColor(Color.WHITE)
+      .setRippleColor(Color.BLACK)
+      .setShadowImplementation(CardView.SHADOW_IMPLEMENTATION_COMPAT)
+      .build());
+    card.measure(View.MeasureSpec.makeMeasureSpec(240, View.MeasureSpec.EXACTLY),
+      View.MeasureSpec.makeMeasureSpec(160, View.MeasureSpec.EXACTLY));
+    card.layout(0, 0, 240, 160);
+    final Bitmap released = draw(card);
+    card.mBackgroundInvalidations = 0;
+
+    card.setPressed(true);
+    // the ripple animates in
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(300));
+
+    assertTrue("The press did not invalidate the card", card.mBackgroundInvalidations > 0);
+    assertFalse("The ripple was not drawn", released.sameAs(draw(card)));
+  }
+
+  @Test
+  public void unchangedState_changesNothing() {
+    mDrawable.setState(ACTIVATED);
+
+    assertFalse(mDrawable.setState(ACTIVATED));
+    assertEquals(0, mInvalidations);
+  }
+
+  private static Bitmap draw(View view) {
+    final Bitmap bitmap = Bitmap.createBitmap(view.getWidth(), view.getHeight(), Bitmap.Config.ARGB_8888);
+    view.draw(new Canvas(bitmap));
+    return bitmap;
+  }
+}
@@ -31,3 +31,4 @@ rootProject.name = "CustomCardView"
 
 include(":app")
 include(":customcardview")
+include(":benchmark")